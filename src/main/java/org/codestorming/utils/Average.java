@@ -11,6 +11,8 @@
  */
 package org.codestorming.utils;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 
 /**
@@ -19,6 +21,14 @@ import java.io.Serializable;
  * Each time a new value is added, the average is recomputed. When the maximum size is
  * reached, new values will erase the oldest one.
  * <p>
+ * The sum of the values is maintained incrementally with a compensated (Neumaier)
+ * summation, so that adding a value costs {@code O(1)} whatever the size. The sum is
+ * recomputed entirely once every {@code size} additions to bound the rounding drift.
+ * <p>
+ * The {@code NaN} and infinite values are counted apart from the running sum, so that they do
+ * not spoil it once evicted. Only a sum of finite values overflowing the range of {@code double}
+ * is recomputed entirely on each addition, until it fits again.
+ * <p>
  * {@code Average} is <em>thread-safe</em> and the methods modifying the average are
  * <em>synchronized</em> so that the insertion order of the values is consistent with the
  * calls sequence from multiple threads.
@@ -46,6 +56,36 @@ public class Average implements Serializable {
 	 */
 	private int older;
 
+	/**
+	 * The running sum of the values.
+	 */
+	private double sum;
+
+	/**
+	 * The compensation of the rounding errors of {@link #sum}.
+	 */
+	private double compensation;
+
+	/**
+	 * The number of additions since the last exact summation.
+	 */
+	private int updates;
+
+	/**
+	 * The number of {@code NaN} values, not included in {@link #sum}.
+	 */
+	private transient int nans;
+
+	/**
+	 * The number of positive infinite values, not included in {@link #sum}.
+	 */
+	private transient int positiveInfinities;
+
+	/**
+	 * The number of negative infinite values, not included in {@link #sum}.
+	 */
+	private transient int negativeInfinities;
+
 	/**
 	 * The average of the values.
 	 */
@@ -84,20 +124,117 @@ public class Average implements Serializable {
 		if (size < values.length) {
 			values[size++] = value;
 		} else {
+			final double oldest = values[older];
 			values[older++] = value;
 			if (older == size) {
 				older = 0;
 			}
+			remove(oldest);
+		}
+		insert(value);
+		if (++updates >= values.length || Double.isInfinite(sum)) {
+			// Bounds the drift, or recomputes a sum of finite values which overflowed
+			resum();
 		}
-		recompute();
+		average = sum() / size;
+	}
+
+	/**
+	 * Creates the summary of the current values, which may be merged with the summaries of other
+	 * averages.
+	 *
+	 * @return the summary of the current values.
+	 */
+	public synchronized AverageSummary summary() {
+		if (nans > 0 || positiveInfinities > 0 || negativeInfinities > 0) {
+			return new AverageSummary(size, sum(), 0.0, values.length);
+		}// else
+		return new AverageSummary(size, sum, compensation, values.length);
 	}
 
-	private void recompute() {
-		double avg = values[0] / size;
-		for (int i = 1; i < size; i++) {
-			avg += values[i] / size;
+	/**
+	 * Returns the sum of the values.
+	 * <p>
+	 * <em>The caller must hold the monitor of this {@code Average}.</em>
+	 *
+	 * @return the sum of the values.
+	 */
+	double sum() {
+		if (nans > 0 || positiveInfinities > 0 && negativeInfinities > 0) {
+			return Double.NaN;
+		} else if (positiveInfinities > 0) {
+			return Double.POSITIVE_INFINITY;
+		} else if (negativeInfinities > 0) {
+			return Double.NEGATIVE_INFINITY;
+		}// else
+		// The compensation is meaningless with an overflowed sum
+		return Double.isInfinite(sum) ? sum : sum + compensation;
+	}
+
+	/**
+	 * Returns the number of values.
+	 * <p>
+	 * <em>The caller must hold the monitor of this {@code Average}.</em>
+	 *
+	 * @return the number of values.
+	 */
+	int count() {
+		return size;
+	}
+
+	/**
+	 * Adds the given value to the running sum, or to the count of its kind if it is not finite.
+	 */
+	private void insert(double value) {
+		if (Double.isNaN(value)) {
+			nans++;
+		} else if (value == Double.POSITIVE_INFINITY) {
+			positiveInfinities++;
+		} else if (value == Double.NEGATIVE_INFINITY) {
+			negativeInfinities++;
+		} else {
+			accumulate(value);
+		}
+	}
+
+	/**
+	 * Removes the given value from the running sum, or from the count of its kind if it is not
+	 * finite.
+	 */
+	private void remove(double value) {
+		if (Double.isNaN(value)) {
+			nans--;
+		} else if (value == Double.POSITIVE_INFINITY) {
+			positiveInfinities--;
+		} else if (value == Double.NEGATIVE_INFINITY) {
+			negativeInfinities--;
+		} else {
+			accumulate(-value);
+		}
+	}
+
+	/**
+	 * Adds the given value to the running sum (Neumaier summation).
+	 */
+	private void accumulate(double value) {
+		final double t = sum + value;
+		compensation += AverageSummary.error(sum, value, t);
+		sum = t;
+	}
+
+	/**
+	 * Recomputes the running sum from the values.
+	 */
+	private void resum() {
+		sum = 0.0;
+		compensation = 0.0;
+		updates = 0;
+		nans = 0;
+		positiveInfinities = 0;
+		negativeInfinities = 0;
+		for (int i = 0; i < size; i++) {
+			insert(values[i]);
 		}
-		average = avg;
 	}
 
 	/**
@@ -105,10 +242,22 @@ public class Average implements Serializable {
 	 */
 	public synchronized void reset() {
 		average = 0.0;
+		sum = 0.0;
+		compensation = 0.0;
+		updates = 0;
+		nans = 0;
+		positiveInfinities = 0;
+		negativeInfinities = 0;
 		older = 0;
 		size = 0;
 	}
 
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		// The running sum may be missing from older serialized forms
+		resum();
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder builder = new StringBuilder();
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2012-2017 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.utils;
+
+import java.io.Serializable;
+
+/**
+ * An {@code AverageSummary} is a non-mutable summary of the values of an average: their number
+ * and their compensated sum.
+ * <p>
+ * Summaries can be {@link #merge(AverageSummary) merged} to compute the average of the values of
+ * several averages, e.g. from different threads or different nodes, without the values. The merge
+ * is associative and commutative (up to rounding errors).
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ * @see Average#summary()
+ */
+public final class AverageSummary implements Serializable {
+
+	private static final long serialVersionUID = 5283519160461807532L;
+
+	/**
+	 * The summary of no value.
+	 */
+	public static final AverageSummary EMPTY = new AverageSummary(0, 0.0, 0.0, 0);
+
+	/**
+	 * Merges the given summaries.
+	 *
+	 * @param summaries The summaries to merge.
+	 * @return the merged summary, {@link #EMPTY} if there is no summary.
+	 */
+	public static AverageSummary mergeAll(Iterable<AverageSummary> summaries) {
+		long count = 0;
+		double sum = 0.0;
+		double compensation = 0.0;
+		long window = 0;
+		for (AverageSummary summary : summaries) {
+			count += summary.count;
+			final double t = sum + summary.sum;
+			compensation += error(sum, summary.sum, t) + summary.compensation;
+			sum = t;
+			window += summary.window;
+		}
+		return new AverageSummary(count, sum, compensation, window);
+	}
+
+	private final long count;
+
+	private final double sum;
+
+	private final double compensation;
+
+	private final long window;
+
+	/**
+	 * Creates a new {@code AverageSummary}.
+	 *
+	 * @param count The number of values.
+	 * @param sum The sum of the values.
+	 * @param compensation The compensation of the rounding errors of {@code sum}.
+	 * @param window The maximum number of values kept by the summarized averages, {@code 0} if
+	 *        they are not bounded by a number of values.
+	 */
+	public AverageSummary(long count, double sum, double compensation, long window) {
+		if (count < 0 || window < 0) {
+			throw new IllegalArgumentException();
+		}// else
+		this.count = count;
+		this.sum = sum;
+		this.compensation = compensation;
+		this.window = window;
+	}
+
+	/**
+	 * Rounding error of {@code a + b}, {@code t} being the rounded result (Neumaier).
+	 */
+	static double error(double a, double b, double t) {
+		return Math.abs(a) >= Math.abs(b) ? (a - t) + b : (b - t) + a;
+	}
+
+	/**
+	 * Creates the summary of the values of this summary and the given one.
+	 *
+	 * @param summary The summary to merge with this one.
+	 * @return the merged summary.
+	 */
+	public AverageSummary merge(AverageSummary summary) {
+		final double t = sum + summary.sum;
+		return new AverageSummary(count + summary.count, t,
+				compensation + summary.compensation + error(sum, summary.sum, t), window + summary.window);
+	}
+
+	/**
+	 * Returns the average of the summarized values.
+	 *
+	 * @return the average of the summarized values, {@code 0} if there is no value.
+	 */
+	public double getAverage() {
+		return count == 0 ? 0.0 : getSum() / count;
+	}
+
+	/**
+	 * Returns the sum of the summarized values, compensation included.
+	 *
+	 * @return the sum of the summarized values.
+	 */
+	public double getSum() {
+		// The compensation is meaningless with infinite values
+		return Double.isInfinite(sum) ? sum : sum + compensation;
+	}
+
+	/**
+	 * Returns the number of summarized values.
+	 *
+	 * @return the number of summarized values.
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Returns the uncompensated sum of the summarized values.
+	 *
+	 * @return the uncompensated sum of the summarized values.
+	 */
+	public double getRawSum() {
+		return sum;
+	}
+
+	/**
+	 * Returns the compensation of the rounding errors of the {@link #getRawSum() sum}.
+	 *
+	 * @return the compensation of the rounding errors.
+	 */
+	public double getCompensation() {
+		return compensation;
+	}
+
+	/**
+	 * Returns the maximum number of values kept by the summarized averages.
+	 *
+	 * @return the maximum number of values kept by the summarized averages, {@code 0} if they are
+	 *         not bounded by a number of values.
+	 */
+	public long getWindow() {
+		return window;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
+		if (!(obj instanceof AverageSummary)) {
+			return false;
+		}
+		AverageSummary other = (AverageSummary) obj;
+		return count == other.count && Double.compare(sum, other.sum) == 0
+				&& Double.compare(compensation, other.compensation) == 0 && window == other.window;
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = Long.hashCode(count);
+		hash = 31 * hash + Double.hashCode(sum);
+		hash = 31 * hash + Double.hashCode(compensation);
+		return 31 * hash + Long.hashCode(window);
+	}
+
+	@Override
+	public String toString() {
+		return "[count=" + count + ", sum=" + getSum() + ", average=" + getAverage() + ']';
+	}
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2012-2017 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.utils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A {@code BatchHasher} computes the digests of batches of independent messages concurrently on
+ * an {@link Executor}.
+ * <p>
+ * A batch is split in contiguous ranges of messages hashed by different tasks, each worker thread
+ * reusing its digest through the {@link Hasher}. The digests of a batch are written one after the
+ * other in a single buffer, either as raw bytes or directly as hexadecimal characters.
+ * <p>
+ * The number of messages and bytes hashed are measured with {@link RateMeter}s.
+ * <p>
+ * {@code BatchHasher} is <em>thread-safe</em>.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ * @see Hasher
+ */
+public class BatchHasher {
+
+	/**
+	 * The number of tasks per unit of parallelism, balancing messages of different sizes.
+	 */
+	private static final int TASKS_PER_WORKER = 4;
+
+	private final Hasher hasher;
+
+	private final Executor executor;
+
+	private final int parallelism;
+
+	private final RateMeter messages = new RateMeter();
+
+	private final RateMeter bytes = new RateMeter();
+
+	/**
+	 * Creates a new {@code BatchHasher} running in the common {@link ForkJoinPool}.
+	 *
+	 * @param hasher The hasher computing the digests.
+	 */
+	public BatchHasher(Hasher hasher) {
+		this(hasher, ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism());
+	}
+
+	/**
+	 * Creates a new {@code BatchHasher}.
+	 *
+	 * @param hasher The hasher computing the digests, preferably {@link Hasher#perThread(String)
+	 *        per thread} with a fixed pool, or {@link Hasher#pooled(String, int) pooled} with
+	 *        short-lived threads.
+	 * @param executor The executor running the tasks.
+	 * @param parallelism The number of threads of the executor expected to hash concurrently.
+	 * @throws IllegalArgumentException if {@code parallelism <= 0} or if the digest length of the
+	 *         hasher is unknown.
+	 */
+	public BatchHasher(Hasher hasher, Executor executor, int parallelism) {
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("parallelism must be positive.");
+		}// else
+		if (hasher.getDigestLength() == 0) {
+			throw new IllegalArgumentException("Unknown digest length for " + hasher.getAlgorithm());
+		}// else
+		this.hasher = hasher;
+		this.executor = executor;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Returns the number of bytes of each digest.
+	 *
+	 * @return the number of bytes of each digest.
+	 */
+	public int getDigestLength() {
+		return hasher.getDigestLength();
+	}
+
+	/**
+	 * Computes the digests of the given messages.
+	 *
+	 * @param inputs The messages to hash.
+	 * @return the digests of the messages one after the other, the digest of the message
+	 *         {@code i} starting at {@code i * getDigestLength()}.
+	 */
+	public byte[] hash(List<byte[]> inputs) {
+		final byte[] dst = new byte[checkedProduct(inputs.size(), getDigestLength())];
+		hash(inputs, dst, 0);
+		return dst;
+	}
+
+	/**
+	 * Computes the digests of the messages of the given stream, collected before being hashed.
+	 *
+	 * @param inputs The messages to hash.
+	 * @return the digests of the messages one after the other, in the order of the stream.
+	 */
+	public byte[] hash(Stream<byte[]> inputs) {
+		return hash(inputs.collect(Collectors.<byte[]> toList()));
+	}
+
+	/**
+	 * Computes the digests of the given messages into {@code dst} from {@code dstOffset}.
+	 *
+	 * @param inputs The messages to hash.
+	 * @param dst The destination array.
+	 * @param dstOffset The index of the first byte of the first digest.
+	 * @return the index following the last byte of the last digest.
+	 * @throws IndexOutOfBoundsException if the digests do not fit in {@code dst} from
+	 *         {@code dstOffset}.
+	 */
+	public int hash(final List<byte[]> inputs, final byte[] dst, final int dstOffset) {
+		final int length = getDigestLength();
+		Bytes.checkRange(dst.length, dstOffset, checkedProduct(inputs.size(), length));
+		run(inputs, new RangeHasher() {
+			@Override
+			public void hash(int first, int end) {
+				for (int i = first; i < end; i++) {
+					final byte[] input = inputs.get(i);
+					hasher.hash(input, 0, input.length, dst, dstOffset + i * length);
+				}
+			}
+		});
+		return dstOffset + inputs.size() * length;
+	}
+
+	/**
+	 * Computes the hexadecimal digests of the given messages.
+	 *
+	 * @param inputs The messages to hash.
+	 * @param lowerCase {@code true} to use lower case digits.
+	 * @return the hexadecimal digests of the messages one after the other, the digest of the
+	 *         message {@code i} starting at {@code 2 * i * getDigestLength()}.
+	 */
+	public char[] hashToHex(List<byte[]> inputs, boolean lowerCase) {
+		final char[] dst = new char[checkedProduct(inputs.size(), 2 * getDigestLength())];
+		hashToHex(inputs, dst, 0, lowerCase);
+		return dst;
+	}
+
+	/**
+	 * Computes the hexadecimal digests of the given messages into {@code dst} from
+	 * {@code dstOffset}.
+	 *
+	 * @param inputs The messages to hash.
+	 * @param dst The destination array.
+	 * @param dstOffset The index of the first character of the first digest.
+	 * @param lowerCase {@code true} to use lower case digits.
+	 * @return the index following the last character of the last digest.
+	 * @throws IndexOutOfBoundsException if the digests do not fit in {@code dst} from
+	 *         {@code dstOffset}.
+	 */
+	public int hashToHex(final List<byte[]> inputs, final char[] dst, final int dstOffset, final boolean lowerCase) {
+		final int length = getDigestLength();
+		Bytes.checkRange(dst.length, dstOffset, checkedProduct(inputs.size(), 2 * length));
+		run(inputs, new RangeHasher() {
+			@Override
+			public void hash(int first, int end) {
+				final byte[] digest = new byte[length];
+				for (int i = first; i < end; i++) {
+					final byte[] input = inputs.get(i);
+					hasher.hash(input, 0, input.length, digest, 0);
+					Bytes.toHex(digest, 0, length, dst, dstOffset + 2 * i * length, lowerCase);
+				}
+			}
+		});
+		return dstOffset + 2 * inputs.size() * length;
+	}
+
+	private static int checkedProduct(int count, int length) {
+		final long product = (long) count * length;
+		if (product > Integer.MAX_VALUE) {
+			throw new IndexOutOfBoundsException("Too many inputs : " + count);
+		}// else
+		return (int) product;
+	}
+
+	/**
+	 * Splits the inputs in ranges hashed concurrently, then updates the meters.
+	 */
+	private void run(List<byte[]> inputs, final RangeHasher rangeHasher) {
+		final int size = inputs.size();
+		if (size == 0) {
+			return;
+		}// else
+		final int tasks = (int) Math.min(size, (long) parallelism * TASKS_PER_WORKER);
+		final CompletableFuture<?>[] futures = new CompletableFuture<?>[tasks - 1];
+		for (int task = 1; task < tasks; task++) {
+			final int first = (int) ((long) size * task / tasks);
+			final int end = (int) ((long) size * (task + 1) / tasks);
+			futures[task - 1] = CompletableFuture.runAsync(new Runnable() {
+				@Override
+				public void run() {
+					rangeHasher.hash(first, end);
+				}
+			}, executor);
+		}
+		RuntimeException failure = null;
+		try {
+			// The calling thread hashes the first range
+			rangeHasher.hash(0, size / tasks);
+		} catch (RuntimeException e) {
+			failure = e;
+		}
+		try {
+			// Waits for the other ranges even on failure, they write in the caller's buffer
+			CompletableFuture.allOf(futures).join();
+		} catch (CompletionException e) {
+			if (failure != null) {
+				throw failure;
+			}// else
+			final Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}// else
+			throw e;
+		}
+		if (failure != null) {
+			throw failure;
+		}// else
+		long total = 0L;
+		for (byte[] input : inputs) {
+			total += input.length;
+		}
+		messages.mark(size);
+		bytes.mark(total);
+	}
+
+	/**
+	 * Returns the meter of the number of hashed messages.
+	 *
+	 * @return the meter of the number of hashed messages.
+	 */
+	public RateMeter getMessageMeter() {
+		return messages;
+	}
+
+	/**
+	 * Returns the meter of the number of hashed bytes.
+	 *
+	 * @return the meter of the number of hashed bytes.
+	 */
+	public RateMeter getByteMeter() {
+		return bytes;
+	}
+
+	@Override
+	public String toString() {
+		return "BatchHasher[" + hasher.getAlgorithm() + ", messages=" + messages.getCount() + ", bytes="
+				+ bytes.getCount() + ']';
+	}
+
+	/**
+	 * Hashes the messages of a range of indexes.
+	 */
+	private interface RangeHasher {
+
+		void hash(int first, int end);
+	}
+}
@@ -0,0 +1,439 @@
+/*
+ * Copyright (c) 2012-2017 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A {@code BloomFilter} is a compact probabilistic set: {@link #mightContain(long)} never
+ * answers {@code false} for an added key, but may answer {@code true} for a key which was not
+ * added, with a probability chosen at the creation.
+ * <p>
+ * Each key is hashed once with {@link Hash#xxHash64(byte[], int, int, long) xxHash64}, the
+ * {@code k} bit positions being derived from the hash by double hashing. The bits are kept in a
+ * {@code long[]}.
+ * <p>
+ * The <em>blocked</em> variant puts all the bits of a key in the same block of 512 bits (a cache
+ * line), so that adding or checking a key touches only one cache line, for a slightly higher
+ * false positive probability than the one requested.
+ * <p>
+ * A {@code BloomFilter} is <em>thread-safe</em> if created <em>concurrent</em>, its bits being
+ * then set atomically, and <em>not thread-safe</em> otherwise.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ * @see CuckooFilter
+ */
+public final class BloomFilter {
+
+	private static final int HEADER = 6;
+
+	/**
+	 * The number of bits of a block, as a shift.
+	 */
+	private static final int BLOCK_SHIFT = 9;
+
+	private static final int BLOCK_WORDS = (1 << BLOCK_SHIFT) >>> 6;
+
+	/**
+	 * The maximum number of words, so that the serialized filter fits in a byte array.
+	 */
+	private static final int MAX_WORDS = (Integer.MAX_VALUE - 8 - HEADER) / 8;
+
+	private final boolean blocked;
+
+	private final int hashes;
+
+	/**
+	 * The bits when not concurrent, {@code null} otherwise.
+	 */
+	private final long[] words;
+
+	/**
+	 * The bits when concurrent, {@code null} otherwise.
+	 */
+	private final AtomicLongArray atomicWords;
+
+	private final long bitCount;
+
+	/**
+	 * Creates a new standard and non-concurrent {@code BloomFilter}.
+	 *
+	 * @param expectedInsertions The expected number of keys.
+	 * @param fpp The wanted false positive probability when the expected number of keys are
+	 *        added.
+	 * @throws IllegalArgumentException if {@code expectedInsertions <= 0}, if {@code fpp} is not
+	 *         strictly between {@code 0} and {@code 1}, or if the filter would be too large to
+	 *         be {@link #toByteArray() serialized}.
+	 */
+	public BloomFilter(long expectedInsertions, double fpp) {
+		this(expectedInsertions, fpp, false, false);
+	}
+
+	/**
+	 * Creates a new {@code BloomFilter}.
+	 *
+	 * @param expectedInsertions The expected number of keys.
+	 * @param fpp The wanted false positive probability when the expected number of keys are
+	 *        added.
+	 * @param blocked {@code true} to keep the bits of each key in a single cache line.
+	 * @param concurrent {@code true} to set the bits atomically.
+	 * @throws IllegalArgumentException if {@code expectedInsertions <= 0}, if {@code fpp} is not
+	 *         strictly between {@code 0} and {@code 1}, or if the filter would be too large to
+	 *         be {@link #toByteArray() serialized}.
+	 */
+	public BloomFilter(long expectedInsertions, double fpp, boolean blocked, boolean concurrent) {
+		if (expectedInsertions <= 0 || !(fpp > 0.0 && fpp < 1.0)) {
+			throw new IllegalArgumentException("Invalid parameters : " + expectedInsertions + ", " + fpp);
+		}// else
+		final double ln2 = Math.log(2);
+		final double bits = Math.ceil(-expectedInsertions * Math.log(fpp) / (ln2 * ln2));
+		final int unit = blocked ? BLOCK_WORDS : 1;
+		final double length = Math.ceil(bits / 64 / unit) * unit;
+		if (length > MAX_WORDS / unit * unit) {
+			throw new IllegalArgumentException("The filter would be too large.");
+		}// else
+		this.blocked = blocked;
+		hashes = (int) Math.max(1, Math.min(32, Math.round(bits / expectedInsertions * ln2)));
+		words = concurrent ? null : new long[(int) length];
+		atomicWords = concurrent ? new AtomicLongArray((int) length) : null;
+		bitCount = (long) length * 64;
+	}
+
+	private BloomFilter(boolean blocked, int hashes, long[] words, boolean concurrent) {
+		this.blocked = blocked;
+		this.hashes = hashes;
+		this.words = concurrent ? null : words;
+		atomicWords = concurrent ? new AtomicLongArray(words) : null;
+		bitCount = (long) words.length * 64;
+	}
+
+	/**
+	 * Reads a filter serialized by {@link #toByteArray()}.
+	 *
+	 * @param src The source array.
+	 * @param offset The index of the first byte of the serialized filter.
+	 * @param concurrent {@code true} to set the bits atomically.
+	 * @return the filter.
+	 * @throws IllegalArgumentException if the bytes are not a valid serialized filter.
+	 * @throws IndexOutOfBoundsException if the serialized filter is truncated.
+	 */
+	public static BloomFilter fromByteArray(byte[] src, int offset, boolean concurrent) {
+		Bytes.checkRange(src.length, offset, HEADER);
+		final int flags = src[offset];
+		final boolean blocked = (flags & 1) != 0;
+		final int hashes = src[offset + 1];
+		final int length = Bytes.getInt(src, offset + 2);
+		if ((flags & ~1) != 0 || hashes <= 0 || hashes > 32 || length <= 0
+				|| length > MAX_WORDS || blocked && length % BLOCK_WORDS != 0) {
+			throw new IllegalArgumentException("Invalid serialized filter.");
+		}// else
+		final long[] words = new long[length];
+		Bytes.getLongs(src, offset + HEADER, words, 0, length, ByteOrder.BIG_ENDIAN);
+		return new BloomFilter(blocked, hashes, words, concurrent);
+	}
+
+	/**
+	 * Returns the number of bits of this filter.
+	 *
+	 * @return the number of bits of this filter.
+	 */
+	public long getBitCount() {
+		return bitCount;
+	}
+
+	/**
+	 * Returns the number of bits set per key.
+	 *
+	 * @return the number of bits set per key.
+	 */
+	public int getHashCount() {
+		return hashes;
+	}
+
+	/**
+	 * Indicates if the bits of each key are kept in a single block of 512 bits.
+	 *
+	 * @return {@code true} if this filter is blocked;<br> {@code false} otherwise.
+	 */
+	public boolean isBlocked() {
+		return blocked;
+	}
+
+	/**
+	 * Returns the current probability that {@link #mightContain(long)} answers {@code true} for
+	 * a key which was not added, estimated from the proportion of bits set.
+	 *
+	 * @return the current false positive probability.
+	 */
+	public double getFalsePositiveProbability() {
+		long set = 0L;
+		for (int i = 0, length = length(); i < length; i++) {
+			set += Long.bitCount(word(i));
+		}
+		return Math.pow((double) set / bitCount, hashes);
+	}
+
+	/**
+	 * Adds the given key.
+	 *
+	 * @param key The key.
+	 * @return {@code true} if a bit changed, i.e. the key was certainly not already added;<br>
+	 *         {@code false} otherwise.
+	 */
+	public boolean add(long key) {
+		return addHash(Hash.xxHash64(key, 0L));
+	}
+
+	/**
+	 * Adds {@code length} bytes of {@code key} from {@code offset} as a key.
+	 *
+	 * @param key The array containing the key.
+	 * @param offset The index of the first byte of the key.
+	 * @param length The number of bytes of the key.
+	 * @return {@code true} if a bit changed, i.e. the key was certainly not already added;<br>
+	 *         {@code false} otherwise.
+	 * @throws IndexOutOfBoundsException if the range is out of the array's bounds.
+	 */
+	public boolean add(byte[] key, int offset, int length) {
+		return addHash(Hash.xxHash64(key, offset, length, 0L));
+	}
+
+	/**
+	 * Adds the remaining bytes of the given buffer as a key, without modifying its position.
+	 *
+	 * @param key The buffer containing the key.
+	 * @return {@code true} if a bit changed, i.e. the key was certainly not already added;<br>
+	 *         {@code false} otherwise.
+	 */
+	public boolean add(ByteBuffer key) {
+		return addHash(Hash.xxHash64(key, 0L));
+	}
+
+	/**
+	 * Adds {@code length} keys of {@code keys} from {@code offset}.
+	 *
+	 * @param keys The keys.
+	 * @param offset The index of the first key.
+	 * @param length The number of keys.
+	 * @return the number of keys for which a bit changed.
+	 * @throws IndexOutOfBoundsException if the range is out of the array's bounds.
+	 */
+	public int add(long[] keys, int offset, int length) {
+		Bytes.checkRange(keys.length, offset, length);
+		int changed = 0;
+		for (int i = offset, end = offset + length; i < end; i++) {
+			if (addHash(Hash.xxHash64(keys[i], 0L))) {
+				changed++;
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Indicates if the given key might have been added.
+	 *
+	 * @param key The key.
+	 * @return {@code true} if the key might have been added;<br> {@code false} if it certainly
+	 *         was not.
+	 */
+	public boolean mightContain(long key) {
+		return containsHash(Hash.xxHash64(key, 0L));
+	}
+
+	/**
+	 * Indicates if {@code length} bytes of {@code key} from {@code offset} might have been added
+	 * as a key.
+	 *
+	 * @param key The array containing the key.
+	 * @param offset The index of the first byte of the key.
+	 * @param length The number of bytes of the key.
+	 * @return {@code true} if the key might have been added;<br> {@code false} if it certainly
+	 *         was not.
+	 * @throws IndexOutOfBoundsException if the range is out of the array's bounds.
+	 */
+	public boolean mightContain(byte[] key, int offset, int length) {
+		return containsHash(Hash.xxHash64(key, offset, length, 0L));
+	}
+
+	/**
+	 * Indicates if the remaining bytes of the given buffer might have been added as a key.
+	 *
+	 * @param key The buffer containing the key.
+	 * @return {@code true} if the key might have been added;<br> {@code false} if it certainly
+	 *         was not.
+	 */
+	public boolean mightContain(ByteBuffer key) {
+		return containsHash(Hash.xxHash64(key, 0L));
+	}
+
+	/**
+	 * Checks {@code length} keys of {@code keys} from {@code offset}.
+	 *
+	 * @param keys The keys.
+	 * @param offset The index of the first key.
+	 * @param length The number of keys.
+	 * @param results The array receiving the result of {@link #mightContain(long)} for each key.
+	 * @param resultsOffset The index of the result of the first key.
+	 * @return the number of keys which might have been added.
+	 * @throws IndexOutOfBoundsException if a range is out of an array's bounds.
+	 */
+	public int mightContain(long[] keys, int offset, int length, boolean[] results, int resultsOffset) {
+		Bytes.checkRange(keys.length, offset, length);
+		Bytes.checkRange(results.length, resultsOffset, length);
+		int count = 0;
+		for (int i = 0; i < length; i++) {
+			final boolean result = containsHash(Hash.xxHash64(keys[offset + i], 0L));
+			results[resultsOffset + i] = result;
+			if (result) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Derives the second hash of the double hashing from the first one.
+	 */
+	private static long secondHash(long hash) {
+		// Murmur3 finalizer, a bijection, the result being made odd
+		long h = hash ^ 0x5851F42D4C957F2DL;
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		h ^= h >>> 33;
+		return h | 1L;
+	}
+
+	private boolean addHash(long hash) {
+		final long h2 = secondHash(hash);
+		boolean changed = false;
+		if (blocked) {
+			final int base = blockBase(hash);
+			for (int i = 0; i < hashes; i++) {
+				final int bit = (int) ((h2 >>> 32) + i * h2) & ((1 << BLOCK_SHIFT) - 1);
+				changed |= setBit(base + (bit >>> 6), 1L << bit);
+			}
+		} else {
+			long combined = hash;
+			for (int i = 0; i < hashes; i++) {
+				final long bit = (combined & Long.MAX_VALUE) % bitCount;
+				changed |= setBit((int) (bit >>> 6), 1L << bit);
+				combined += h2;
+			}
+		}
+		return changed;
+	}
+
+	private boolean containsHash(long hash) {
+		final long h2 = secondHash(hash);
+		if (blocked) {
+			final int base = blockBase(hash);
+			for (int i = 0; i < hashes; i++) {
+				final int bit = (int) ((h2 >>> 32) + i * h2) & ((1 << BLOCK_SHIFT) - 1);
+				if ((word(base + (bit >>> 6)) & (1L << bit)) == 0) {
+					return false;
+				}
+			}
+		} else {
+			long combined = hash;
+			for (int i = 0; i < hashes; i++) {
+				final long bit = (combined & Long.MAX_VALUE) % bitCount;
+				if ((word((int) (bit >>> 6)) & (1L << bit)) == 0) {
+					return false;
+				}
+				combined += h2;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the index of the first word of the block of the given hash.
+	 */
+	private int blockBase(long hash) {
+		final long blocks = length() / BLOCK_WORDS;
+		return (int) ((hash & Long.MAX_VALUE) % blocks) * BLOCK_WORDS;
+	}
+
+	private int length() {
+		return words != null ? words.length : atomicWords.length();
+	}
+
+	private long word(int index) {
+		return words != null ? words[index] : atomicWords.get(index);
+	}
+
+	/**
+	 * Sets the bits of the given mask in the given word.
+	 *
+	 * @return {@code true} if a bit changed.
+	 */
+	private boolean setBit(int index, long mask) {
+		if (words != null) {
+			final long word = words[index];
+			words[index] = word | mask;
+			return (word & mask) == 0;
+		}// else
+		long word;
+		do {
+			word = atomicWords.get(index);
+			if ((word & mask) != 0) {
+				return false;
+			}
+		} while (!atomicWords.compareAndSet(index, word, word | mask));
+		return true;
+	}
+
+	/**
+	 * Removes all the keys.
+	 */
+	public void clear() {
+		for (int i = 0, length = length(); i < length; i++) {
+			if (words != null) {
+				words[i] = 0L;
+			} else {
+				atomicWords.set(i, 0L);
+			}
+		}
+	}
+
+	/**
+	 * Serializes this filter: a flags byte, the number of hashes, the number of words and the
+	 * words, in big-endian.
+	 *
+	 * @return the serialized filter.
+	 * @see #fromByteArray(byte[], int, boolean)
+	 */
+	public byte[] toByteArray() {
+		final int length = length();
+		final byte[] bytes = new byte[HEADER + length * 8];
+		bytes[0] = (byte) (blocked ? 1 : 0);
+		bytes[1] = (byte) hashes;
+		Bytes.putInt(bytes, 2, length);
+		if (words != null) {
+			Bytes.putLongs(words, 0, length, bytes, HEADER, ByteOrder.BIG_ENDIAN);
+		} else {
+			for (int i = 0; i < length; i++) {
+				Bytes.putLong(bytes, HEADER + i * 8, atomicWords.get(i));
+			}
+		}
+		return bytes;
+	}
+
+	@Override
+	public String toString() {
+		return "BloomFilter[bits=" + bitCount + ", hashes=" + hashes + (blocked ? ", blocked]" : "]");
+	}
+}
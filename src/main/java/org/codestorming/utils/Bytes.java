@@ -11,8 +11,25 @@
  */
 package org.codestorming.utils;
 
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Comparator;
+
 /**
  * Utility class for bytes.
+ * <p>
+ * The bulk conversions between primitive arrays and bytes ({@link #putLongs(long[], int, int,
+ * byte[], int, ByteOrder) putLongs}, {@link #getLongs(byte[], int, long[], int, int, ByteOrder)
+ * getLongs}, ...) go through a typed view of the bytes and allocate no temporary array per
+ * element. The speed of the copy itself depends on the JDK: with a byte order different from the
+ * native one, the values may still be swapped one at a time.
+ * <p>
+ * All the <em>varint</em> writers ({@code putVarint}, {@code putVarints}) and bulk readers
+ * ({@code getVarints}) return the number of bytes written or read, whether they work on arrays or
+ * on buffers.
  * 
  * @author Thaedrik [thaedrik@codestorming.org]
  */
@@ -20,6 +37,31 @@ public class Bytes {
 
 	private static final String INCORRECT_ARRAY_LENGTH = "The array's length is incorrect : ";
 
+	private static final char[] UPPER_HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+	private static final char[] LOWER_HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	/**
+	 * The value of the hexadecimal digits indexed by their character, {@code -1} for the other
+	 * characters.
+	 */
+	private static final byte[] HEX_VALUES = new byte[128];
+
+	private static final Comparator<byte[]> UNSIGNED_COMPARATOR = new Comparator<byte[]>() {
+		@Override
+		public int compare(byte[] a, byte[] b) {
+			return compareUnsigned(a, b);
+		}
+	};
+
+	static {
+		Arrays.fill(HEX_VALUES, (byte) -1);
+		for (int i = 0; i < 16; i++) {
+			HEX_VALUES[UPPER_HEX_DIGITS[i]] = (byte) i;
+			HEX_VALUES[LOWER_HEX_DIGITS[i]] = (byte) i;
+		}
+	}
+
 	/**
 	 * Create an array of four bytes corresponding to the given integer in big-endian.
 	 * 
@@ -28,10 +70,7 @@ public class Bytes {
 	 */
 	public static byte[] intToByteArray(int integer) {
 		byte[] byteArray = new byte[4];
-		byteArray[0] = (byte) ((integer >>> 24) & 0xFF);
-		byteArray[1] = (byte) ((integer >>> 16) & 0xFF);
-		byteArray[2] = (byte) ((integer >>> 8) & 0xFF);
-		byteArray[3] = (byte) (integer & 0xFF);
+		putInt(byteArray, 0, integer);
 		return byteArray;
 	}
 
@@ -65,14 +104,7 @@ public class Bytes {
 	 */
 	public static byte[] longToByteArray(long longInt) {
 		byte[] byteArray = new byte[8];
-		byteArray[0] = (byte) ((longInt >>> 56) & 0xFF);
-		byteArray[1] = (byte) ((longInt >>> 48) & 0xFF);
-		byteArray[2] = (byte) ((longInt >>> 40) & 0xFF);
-		byteArray[3] = (byte) ((longInt >>> 32) & 0xFF);
-		byteArray[4] = (byte) ((longInt >>> 24) & 0xFF);
-		byteArray[5] = (byte) ((longInt >>> 16) & 0xFF);
-		byteArray[6] = (byte) ((longInt >>> 8) & 0xFF);
-		byteArray[7] = (byte) (longInt & 0xFF);
+		putLong(byteArray, 0, longInt);
 		return byteArray;
 	}
 
@@ -88,16 +120,1032 @@ public class Bytes {
 		if (byteArray.length != 8) {
 			throw new IllegalArgumentException(INCORRECT_ARRAY_LENGTH + byteArray.length);
 		}// else
-		long longInt = 0;
-		longInt |= (long) (0xFF & byteArray[0]) << 56;
-		longInt |= (long) (0xFF & byteArray[1]) << 48;
-		longInt |= (long) (0xFF & byteArray[2]) << 40;
-		longInt |= (long) (0xFF & byteArray[3]) << 32;
-		longInt |= (long) (0xFF & byteArray[4]) << 24;
-		longInt |= (long) (0xFF & byteArray[5]) << 16;
-		longInt |= (long) (0xFF & byteArray[6]) << 8;
-		longInt |= (long) (0xFF & byteArray[7]);
-		return longInt;
+		return getLong(byteArray, 0);
+	}
+
+	/**
+	 * Writes the given short in big-endian into {@code dst} at the given offset.
+	 *
+	 * @param dst The destination array.
+	 * @param offset The index of the first byte to write.
+	 * @param value The short to write.
+	 * @return the index following the last written byte.
+	 * @throws IndexOutOfBoundsException if there is less than two bytes from {@code offset}.
+	 */
+	public static int putShort(byte[] dst, int offset, short value) {
+		checkRange(dst.length, offset, 2);
+		dst[offset] = (byte) (value >>> 8);
+		dst[offset + 1] = (byte) value;
+		return offset + 2;
+	}
+
+	/**
+	 * Writes the given short in the given byte order into {@code dst} at the given offset.
+	 *
+	 * @param dst The destination array.
+	 * @param offset The index of the first byte to write.
+	 * @param value The short to write.
+	 * @param order The byte order.
+	 * @return the index following the last written byte.
+	 * @throws IndexOutOfBoundsException if there is less than two bytes from {@code offset}.
+	 */
+	public static int putShort(byte[] dst, int offset, short value, ByteOrder order) {
+		return putShort(dst, offset, order == ByteOrder.BIG_ENDIAN ? value : Short.reverseBytes(value));
+	}
+
+	/**
+	 * Writes the given integer in big-endian into {@code dst} at the given offset.
+	 *
+	 * @param dst The destination array.
+	 * @param offset The index of the first byte to write.
+	 * @param value The integer to write.
+	 * @return the index following the last written byte.
+	 * @throws IndexOutOfBoundsException if there is less than four bytes from {@code offset}.
+	 */
+	public static int putInt(byte[] dst, int offset, int value) {
+		checkRange(dst.length, offset, 4);
+		dst[offset] = (byte) (value >>> 24);
+		dst[offset + 1] = (byte) (value >>> 16);
+		dst[offset + 2] = (byte) (value >>> 8);
+		dst[offset + 3] = (byte) value;
+		return offset + 4;
+	}
+
+	/**
+	 * Writes the given integer in the given byte order into {@code dst} at the given offset.
+	 *
+	 * @param dst The destination array.
+	 * @param offset The index of the first byte to write.
+	 * @param value The integer to write.
+	 * @param order The byte order.
+	 * @return the index following the last written byte.
+	 * @throws IndexOutOfBoundsException if there is less than four bytes from {@code offset}.
+	 */
+	public static int putInt(byte[] dst, int offset, int value, ByteOrder order) {
+		return putInt(dst, offset, order == ByteOrder.BIG_ENDIAN ? value : Integer.reverseBytes(value));
+	}
+
+	/**
+	 * Writes the given long integer in big-endian into {@code dst} at the given offset.
+	 *
+	 * @param dst The destination array.
+	 * @param offset The index of the first byte to write.
+	 * @param value The long integer to write.
+	 * @return the index following the last written byte.
+	 * @throws IndexOutOfBoundsException if there is less than eight bytes from {@code offset}.
+	 */
+	public static int putLong(byte[] dst, int offset, long value) {
+		checkRange(dst.length, offset, 8);
+		dst[offset] = (byte) (value >>> 56);
+		dst[offset + 1] = (byte) (value >>> 48);
+		dst[offset + 2] = (byte) (value >>> 40);
+		dst[offset + 3] = (byte) (value >>> 32);
+		dst[offset + 4] = (byte) (value >>> 24);
+		dst[offset + 5] = (byte) (value >>> 16);
+		dst[offset + 6] = (byte) (value >>> 8);
+		dst[offset + 7] = (byte) value;
+		return offset + 8;
+	}
+
+	/**
+	 * Writes the given long integer in the given byte order into {@code dst} at the given offset.
+	 *
+	 * @param dst The destination array.
+	 * @param offset The index of the first byte to write.
+	 * @param value The long integer to write.
+	 * @param order The byte order.
+	 * @return the index following the last written byte.
+	 * @throws IndexOutOfBoundsException if there is less than eight bytes from {@code offset}.
+	 */
+	public static int putLong(byte[] dst, int offset, long value, ByteOrder order) {
+		return putLong(dst, offset, order == ByteOrder.BIG_ENDIAN ? value : Long.reverseBytes(value));
+	}
+
+	/**
+	 * Writes the given float in big-endian into {@code dst} at the given offset.
+	 *
+	 * @param dst The destination array.
+	 * @param offset The index of the first byte to write.
+	 * @param value The float to write.
+	 * @return the index following the last written byte.
+	 * @throws IndexOutOfBoundsException if there is less than four bytes from {@code offset}.
+	 */
+	public static int putFloat(byte[] dst, int offset, float value) {
+		return putInt(dst, offset, Float.floatToRawIntBits(value));
+	}
+
+	/**
+	 * Writes the given float in the given byte order into {@code dst} at the given offset.
+	 *
+	 * @param dst The destination array.
+	 * @param offset The index of the first byte to write.
+	 * @param value The float to write.
+	 * @param order The byte order.
+	 * @return the index following the last written byte.
+	 * @throws IndexOutOfBoundsException if there is less than four bytes from {@code offset}.
+	 */
+	public static int putFloat(byte[] dst, int offset, float value, ByteOrder order) {
+		return putInt(dst, offset, Float.floatToRawIntBits(value), order);
+	}
+
+	/**
+	 * Writes the given double in big-endian into {@code dst} at the given offset.
+	 *
+	 * @param dst The destination array.
+	 * @param offset The index of the first byte to write.
+	 * @param value The double to write.
+	 * @return the index following the last written byte.
+	 * @throws IndexOutOfBoundsException if there is less than eight bytes from {@code offset}.
+	 */
+	public static int putDouble(byte[] dst, int offset, double value) {
+		return putLong(dst, offset, Double.doubleToRawLongBits(value));
+	}
+
+	/**
+	 * Writes the given double in the given byte order into {@code dst} at the given offset.
+	 *
+	 * @param dst The destination array.
+	 * @param offset The index of the first byte to write.
+	 * @param value The double to write.
+	 * @param order The byte order.
+	 * @return the index following the last written byte.
+	 * @throws IndexOutOfBoundsException if there is less than eight bytes from {@code offset}.
+	 */
+	public static int putDouble(byte[] dst, int offset, double value, ByteOrder order) {
+		return putLong(dst, offset, Double.doubleToRawLongBits(value), order);
+	}
+
+	/**
+	 * Reads a big-endian short from {@code src} at the given offset.
+	 *
+	 * @param src The source array.
+	 * @param offset The index of the first byte to read.
+	 * @return the short read.
+	 * @throws IndexOutOfBoundsException if there is less than two bytes from {@code offset}.
+	 */
+	public static short getShort(byte[] src, int offset) {
+		checkRange(src.length, offset, 2);
+		return (short) ((src[offset] << 8) | (src[offset + 1] & 0xFF));
+	}
+
+	/**
+	 * Reads a short in the given byte order from {@code src} at the given offset.
+	 *
+	 * @param src The source array.
+	 * @param offset The index of the first byte to read.
+	 * @param order The byte order.
+	 * @return the short read.
+	 * @throws IndexOutOfBoundsException if there is less than two bytes from {@code offset}.
+	 */
+	public static short getShort(byte[] src, int offset, ByteOrder order) {
+		final short value = getShort(src, offset);
+		return order == ByteOrder.BIG_ENDIAN ? value : Short.reverseBytes(value);
+	}
+
+	/**
+	 * Reads a big-endian integer from {@code src} at the given offset.
+	 *
+	 * @param src The source array.
+	 * @param offset The index of the first byte to read.
+	 * @return the integer read.
+	 * @throws IndexOutOfBoundsException if there is less than four bytes from {@code offset}.
+	 */
+	public static int getInt(byte[] src, int offset) {
+		checkRange(src.length, offset, 4);
+		return (src[offset] << 24) | (src[offset + 1] & 0xFF) << 16 | (src[offset + 2] & 0xFF) << 8
+				| (src[offset + 3] & 0xFF);
+	}
+
+	/**
+	 * Reads an integer in the given byte order from {@code src} at the given offset.
+	 *
+	 * @param src The source array.
+	 * @param offset The index of the first byte to read.
+	 * @param order The byte order.
+	 * @return the integer read.
+	 * @throws IndexOutOfBoundsException if there is less than four bytes from {@code offset}.
+	 */
+	public static int getInt(byte[] src, int offset, ByteOrder order) {
+		final int value = getInt(src, offset);
+		return order == ByteOrder.BIG_ENDIAN ? value : Integer.reverseBytes(value);
+	}
+
+	/**
+	 * Reads a big-endian long integer from {@code src} at the given offset.
+	 *
+	 * @param src The source array.
+	 * @param offset The index of the first byte to read.
+	 * @return the long integer read.
+	 * @throws IndexOutOfBoundsException if there is less than eight bytes from {@code offset}.
+	 */
+	public static long getLong(byte[] src, int offset) {
+		checkRange(src.length, offset, 8);
+		return (long) src[offset] << 56 | (src[offset + 1] & 0xFFL) << 48 | (src[offset + 2] & 0xFFL) << 40
+				| (src[offset + 3] & 0xFFL) << 32 | (src[offset + 4] & 0xFFL) << 24
+				| (src[offset + 5] & 0xFFL) << 16 | (src[offset + 6] & 0xFFL) << 8 | (src[offset + 7] & 0xFFL);
+	}
+
+	/**
+	 * Reads a long integer in the given byte order from {@code src} at the given offset.
+	 *
+	 * @param src The source array.
+	 * @param offset The index of the first byte to read.
+	 * @param order The byte order.
+	 * @return the long integer read.
+	 * @throws IndexOutOfBoundsException if there is less than eight bytes from {@code offset}.
+	 */
+	public static long getLong(byte[] src, int offset, ByteOrder order) {
+		final long value = getLong(src, offset);
+		return order == ByteOrder.BIG_ENDIAN ? value : Long.reverseBytes(value);
+	}
+
+	/**
+	 * Reads a big-endian float from {@code src} at the given offset.
+	 *
+	 * @param src The source array.
+	 * @param offset The index of the first byte to read.
+	 * @return the float read.
+	 * @throws IndexOutOfBoundsException if there is less than four bytes from {@code offset}.
+	 */
+	public static float getFloat(byte[] src, int offset) {
+		return Float.intBitsToFloat(getInt(src, offset));
+	}
+
+	/**
+	 * Reads a float in the given byte order from {@code src} at the given offset.
+	 *
+	 * @param src The source array.
+	 * @param offset The index of the first byte to read.
+	 * @param order The byte order.
+	 * @return the float read.
+	 * @throws IndexOutOfBoundsException if there is less than four bytes from {@code offset}.
+	 */
+	public static float getFloat(byte[] src, int offset, ByteOrder order) {
+		return Float.intBitsToFloat(getInt(src, offset, order));
+	}
+
+	/**
+	 * Reads a big-endian double from {@code src} at the given offset.
+	 *
+	 * @param src The source array.
+	 * @param offset The index of the first byte to read.
+	 * @return the double read.
+	 * @throws IndexOutOfBoundsException if there is less than eight bytes from {@code offset}.
+	 */
+	public static double getDouble(byte[] src, int offset) {
+		return Double.longBitsToDouble(getLong(src, offset));
+	}
+
+	/**
+	 * Reads a double in the given byte order from {@code src} at the given offset.
+	 *
+	 * @param src The source array.
+	 * @param offset The index of the first byte to read.
+	 * @param order The byte order.
+	 * @return the double read.
+	 * @throws IndexOutOfBoundsException if there is less than eight bytes from {@code offset}.
+	 */
+	public static double getDouble(byte[] src, int offset, ByteOrder order) {
+		return Double.longBitsToDouble(getLong(src, offset, order));
+	}
+
+	/**
+	 * Writes the given short in the given byte order into {@code dst} at the given index.
+	 * <p>
+	 * The position and the byte order of the buffer are not modified.
+	 *
+	 * @param dst The destination buffer.
+	 * @param index The index of the first byte to write.
+	 * @param value The short to write.
+	 * @param order The byte order.
+	 * @return the index following the last written byte.
+	 * @throws IndexOutOfBoundsException if there is less than two bytes from {@code index}.
+	 */
+	public static int putShort(ByteBuffer dst, int index, short value, ByteOrder order) {
+		dst.putShort(index, dst.order() == order ? value : Short.reverseBytes(value));
+		return index + 2;
+	}
+
+	/**
+	 * Writes the given integer in the given byte order into {@code dst} at the given index.
+	 * <p>
+	 * The position and the byte order of the buffer are not modified.
+	 *
+	 * @param dst The destination buffer.
+	 * @param index The index of the first byte to write.
+	 * @param value The integer to write.
+	 * @param order The byte order.
+	 * @return the index following the last written byte.
+	 * @throws IndexOutOfBoundsException if there is less than four bytes from {@code index}.
+	 */
+	public static int putInt(ByteBuffer dst, int index, int value, ByteOrder order) {
+		dst.putInt(index, dst.order() == order ? value : Integer.reverseBytes(value));
+		return index + 4;
+	}
+
+	/**
+	 * Writes the given long integer in the given byte order into {@code dst} at the given index.
+	 * <p>
+	 * The position and the byte order of the buffer are not modified.
+	 *
+	 * @param dst The destination buffer.
+	 * @param index The index of the first byte to write.
+	 * @param value The long integer to write.
+	 * @param order The byte order.
+	 * @return the index following the last written byte.
+	 * @throws IndexOutOfBoundsException if there is less than eight bytes from {@code index}.
+	 */
+	public static int putLong(ByteBuffer dst, int index, long value, ByteOrder order) {
+		dst.putLong(index, dst.order() == order ? value : Long.reverseBytes(value));
+		return index + 8;
+	}
+
+	/**
+	 * Writes the given float in the given byte order into {@code dst} at the given index.
+	 * <p>
+	 * The position and the byte order of the buffer are not modified.
+	 *
+	 * @param dst The destination buffer.
+	 * @param index The index of the first byte to write.
+	 * @param value The float to write.
+	 * @param order The byte order.
+	 * @return the index following the last written byte.
+	 * @throws IndexOutOfBoundsException if there is less than four bytes from {@code index}.
+	 */
+	public static int putFloat(ByteBuffer dst, int index, float value, ByteOrder order) {
+		return putInt(dst, index, Float.floatToRawIntBits(value), order);
+	}
+
+	/**
+	 * Writes the given double in the given byte order into {@code dst} at the given index.
+	 * <p>
+	 * The position and the byte order of the buffer are not modified.
+	 *
+	 * @param dst The destination buffer.
+	 * @param index The index of the first byte to write.
+	 * @param value The double to write.
+	 * @param order The byte order.
+	 * @return the index following the last written byte.
+	 * @throws IndexOutOfBoundsException if there is less than eight bytes from {@code index}.
+	 */
+	public static int putDouble(ByteBuffer dst, int index, double value, ByteOrder order) {
+		return putLong(dst, index, Double.doubleToRawLongBits(value), order);
+	}
+
+	/**
+	 * Reads a short in the given byte order from {@code src} at the given index.
+	 * <p>
+	 * The position and the byte order of the buffer are not modified.
+	 *
+	 * @param src The source buffer.
+	 * @param index The index of the first byte to read.
+	 * @param order The byte order.
+	 * @return the short read.
+	 * @throws IndexOutOfBoundsException if there is less than two bytes from {@code index}.
+	 */
+	public static short getShort(ByteBuffer src, int index, ByteOrder order) {
+		final short value = src.getShort(index);
+		return src.order() == order ? value : Short.reverseBytes(value);
+	}
+
+	/**
+	 * Reads an integer in the given byte order from {@code src} at the given index.
+	 * <p>
+	 * The position and the byte order of the buffer are not modified.
+	 *
+	 * @param src The source buffer.
+	 * @param index The index of the first byte to read.
+	 * @param order The byte order.
+	 * @return the integer read.
+	 * @throws IndexOutOfBoundsException if there is less than four bytes from {@code index}.
+	 */
+	public static int getInt(ByteBuffer src, int index, ByteOrder order) {
+		final int value = src.getInt(index);
+		return src.order() == order ? value : Integer.reverseBytes(value);
+	}
+
+	/**
+	 * Reads a long integer in the given byte order from {@code src} at the given index.
+	 * <p>
+	 * The position and the byte order of the buffer are not modified.
+	 *
+	 * @param src The source buffer.
+	 * @param index The index of the first byte to read.
+	 * @param order The byte order.
+	 * @return the long integer read.
+	 * @throws IndexOutOfBoundsException if there is less than eight bytes from {@code index}.
+	 */
+	public static long getLong(ByteBuffer src, int index, ByteOrder order) {
+		final long value = src.getLong(index);
+		return src.order() == order ? value : Long.reverseBytes(value);
+	}
+
+	/**
+	 * Reads a float in the given byte order from {@code src} at the given index.
+	 * <p>
+	 * The position and the byte order of the buffer are not modified.
+	 *
+	 * @param src The source buffer.
+	 * @param index The index of the first byte to read.
+	 * @param order The byte order.
+	 * @return the float read.
+	 * @throws IndexOutOfBoundsException if there is less than four bytes from {@code index}.
+	 */
+	public static float getFloat(ByteBuffer src, int index, ByteOrder order) {
+		return Float.intBitsToFloat(getInt(src, index, order));
+	}
+
+	/**
+	 * Reads a double in the given byte order from {@code src} at the given index.
+	 * <p>
+	 * The position and the byte order of the buffer are not modified.
+	 *
+	 * @param src The source buffer.
+	 * @param index The index of the first byte to read.
+	 * @param order The byte order.
+	 * @return the double read.
+	 * @throws IndexOutOfBoundsException if there is less than eight bytes from {@code index}.
+	 */
+	public static double getDouble(ByteBuffer src, int index, ByteOrder order) {
+		return Double.longBitsToDouble(getLong(src, index, order));
+	}
+
+	/**
+	 * Writes {@code length} integers of {@code src} from {@code offset} in the given byte order
+	 * into {@code dst} at {@code dstOffset}.
+	 *
+	 * @param src The integers to write.
+	 * @param offset The index of the first integer to write.
+	 * @param length The number of integers to write.
+	 * @param dst The destination array.
+	 * @param dstOffset The index of the first byte to write.
+	 * @param order The byte order.
+	 * @return the index following the last written byte.
+	 * @throws IndexOutOfBoundsException if a range is out of an array's bounds.
+	 */
+	public static int putInts(int[] src, int offset, int length, byte[] dst, int dstOffset, ByteOrder order) {
+		checkRange(src.length, offset, length);
+		final int count = byteCount(length, 4);
+		checkRange(dst.length, dstOffset, count);
+		ByteBuffer.wrap(dst, dstOffset, count).order(order).asIntBuffer().put(src, offset, length);
+		return dstOffset + count;
+	}
+
+	/**
+	 * Reads {@code length} integers in the given byte order from {@code src} at {@code offset}
+	 * into {@code dst} from {@code dstOffset}.
+	 *
+	 * @param src The source array.
+	 * @param offset The index of the first byte to read.
+	 * @param dst The destination array.
+	 * @param dstOffset The index of the first integer to write.
+	 * @param length The number of integers to read.
+	 * @param order The byte order.
+	 * @return the index following the last read byte.
+	 * @throws IndexOutOfBoundsException if a range is out of an array's bounds.
+	 */
+	public static int getInts(byte[] src, int offset, int[] dst, int dstOffset, int length, ByteOrder order) {
+		checkRange(dst.length, dstOffset, length);
+		final int count = byteCount(length, 4);
+		checkRange(src.length, offset, count);
+		ByteBuffer.wrap(src, offset, count).order(order).asIntBuffer().get(dst, dstOffset, length);
+		return offset + count;
+	}
+
+	/**
+	 * Writes {@code length} long integers of {@code src} from {@code offset} in the given byte
+	 * order into {@code dst} at {@code dstOffset}.
+	 *
+	 * @param src The long integers to write.
+	 * @param offset The index of the first long integer to write.
+	 * @param length The number of long integers to write.
+	 * @param dst The destination array.
+	 * @param dstOffset The index of the first byte to write.
+	 * @param order The byte order.
+	 * @return the index following the last written byte.
+	 * @throws IndexOutOfBoundsException if a range is out of an array's bounds.
+	 */
+	public static int putLongs(long[] src, int offset, int length, byte[] dst, int dstOffset, ByteOrder order) {
+		checkRange(src.length, offset, length);
+		final int count = byteCount(length, 8);
+		checkRange(dst.length, dstOffset, count);
+		ByteBuffer.wrap(dst, dstOffset, count).order(order).asLongBuffer().put(src, offset, length);
+		return dstOffset + count;
+	}
+
+	/**
+	 * Reads {@code length} long integers in the given byte order from {@code src} at
+	 * {@code offset} into {@code dst} from {@code dstOffset}.
+	 *
+	 * @param src The source array.
+	 * @param offset The index of the first byte to read.
+	 * @param dst The destination array.
+	 * @param dstOffset The index of the first long integer to write.
+	 * @param length The number of long integers to read.
+	 * @param order The byte order.
+	 * @return the index following the last read byte.
+	 * @throws IndexOutOfBoundsException if a range is out of an array's bounds.
+	 */
+	public static int getLongs(byte[] src, int offset, long[] dst, int dstOffset, int length, ByteOrder order) {
+		checkRange(dst.length, dstOffset, length);
+		final int count = byteCount(length, 8);
+		checkRange(src.length, offset, count);
+		ByteBuffer.wrap(src, offset, count).order(order).asLongBuffer().get(dst, dstOffset, length);
+		return offset + count;
+	}
+
+	/**
+	 * Writes {@code length} doubles of {@code src} from {@code offset} in the given byte order
+	 * into {@code dst} at {@code dstOffset}.
+	 *
+	 * @param src The doubles to write.
+	 * @param offset The index of the first double to write.
+	 * @param length The number of doubles to write.
+	 * @param dst The destination array.
+	 * @param dstOffset The index of the first byte to write.
+	 * @param order The byte order.
+	 * @return the index following the last written byte.
+	 * @throws IndexOutOfBoundsException if a range is out of an array's bounds.
+	 */
+	public static int putDoubles(double[] src, int offset, int length, byte[] dst, int dstOffset, ByteOrder order) {
+		checkRange(src.length, offset, length);
+		final int count = byteCount(length, 8);
+		checkRange(dst.length, dstOffset, count);
+		ByteBuffer.wrap(dst, dstOffset, count).order(order).asDoubleBuffer().put(src, offset, length);
+		return dstOffset + count;
+	}
+
+	/**
+	 * Reads {@code length} doubles in the given byte order from {@code src} at {@code offset} into
+	 * {@code dst} from {@code dstOffset}.
+	 *
+	 * @param src The source array.
+	 * @param offset The index of the first byte to read.
+	 * @param dst The destination array.
+	 * @param dstOffset The index of the first double to write.
+	 * @param length The number of doubles to read.
+	 * @param order The byte order.
+	 * @return the index following the last read byte.
+	 * @throws IndexOutOfBoundsException if a range is out of an array's bounds.
+	 */
+	public static int getDoubles(byte[] src, int offset, double[] dst, int dstOffset, int length, ByteOrder order) {
+		checkRange(dst.length, dstOffset, length);
+		final int count = byteCount(length, 8);
+		checkRange(src.length, offset, count);
+		ByteBuffer.wrap(src, offset, count).order(order).asDoubleBuffer().get(dst, dstOffset, length);
+		return offset + count;
+	}
+
+	/**
+	 * Writes {@code length} integers of {@code src} from {@code offset} in the given byte order
+	 * into {@code dst} at the given index.
+	 * <p>
+	 * The position and the byte order of the buffer are not modified.
+	 *
+	 * @param dst The destination buffer.
+	 * @param index The index of the first byte to write.
+	 * @param src The integers to write.
+	 * @param offset The index of the first integer to write.
+	 * @param length The number of integers to write.
+	 * @param order The byte order.
+	 * @return the index following the last written byte.
+	 * @throws IndexOutOfBoundsException if a range is out of the buffer's limit or the array's
+	 *         bounds.
+	 */
+	public static int putInts(ByteBuffer dst, int index, int[] src, int offset, int length, ByteOrder order) {
+		checkRange(src.length, offset, length);
+		final int count = byteCount(length, 4);
+		view(dst, index, count).order(order).asIntBuffer().put(src, offset, length);
+		return index + count;
+	}
+
+	/**
+	 * Reads {@code length} integers in the given byte order from {@code src} at the given index
+	 * into {@code dst} from {@code dstOffset}.
+	 * <p>
+	 * The position and the byte order of the buffer are not modified.
+	 *
+	 * @param src The source buffer.
+	 * @param index The index of the first byte to read.
+	 * @param dst The destination array.
+	 * @param dstOffset The index of the first integer to write.
+	 * @param length The number of integers to read.
+	 * @param order The byte order.
+	 * @return the index following the last read byte.
+	 * @throws IndexOutOfBoundsException if a range is out of the buffer's limit or the array's
+	 *         bounds.
+	 */
+	public static int getInts(ByteBuffer src, int index, int[] dst, int dstOffset, int length, ByteOrder order) {
+		checkRange(dst.length, dstOffset, length);
+		final int count = byteCount(length, 4);
+		view(src, index, count).order(order).asIntBuffer().get(dst, dstOffset, length);
+		return index + count;
+	}
+
+	/**
+	 * Writes {@code length} long integers of {@code src} from {@code offset} in the given byte
+	 * order into {@code dst} at the given index.
+	 * <p>
+	 * The position and the byte order of the buffer are not modified.
+	 *
+	 * @param dst The destination buffer.
+	 * @param index The index of the first byte to write.
+	 * @param src The long integers to write.
+	 * @param offset The index of the first long integer to write.
+	 * @param length The number of long integers to write.
+	 * @param order The byte order.
+	 * @return the index following the last written byte.
+	 * @throws IndexOutOfBoundsException if a range is out of the buffer's limit or the array's
+	 *         bounds.
+	 */
+	public static int putLongs(ByteBuffer dst, int index, long[] src, int offset, int length, ByteOrder order) {
+		checkRange(src.length, offset, length);
+		final int count = byteCount(length, 8);
+		view(dst, index, count).order(order).asLongBuffer().put(src, offset, length);
+		return index + count;
+	}
+
+	/**
+	 * Reads {@code length} long integers in the given byte order from {@code src} at the given
+	 * index into {@code dst} from {@code dstOffset}.
+	 * <p>
+	 * The position and the byte order of the buffer are not modified.
+	 *
+	 * @param src The source buffer.
+	 * @param index The index of the first byte to read.
+	 * @param dst The destination array.
+	 * @param dstOffset The index of the first long integer to write.
+	 * @param length The number of long integers to read.
+	 * @param order The byte order.
+	 * @return the index following the last read byte.
+	 * @throws IndexOutOfBoundsException if a range is out of the buffer's limit or the array's
+	 *         bounds.
+	 */
+	public static int getLongs(ByteBuffer src, int index, long[] dst, int dstOffset, int length, ByteOrder order) {
+		checkRange(dst.length, dstOffset, length);
+		final int count = byteCount(length, 8);
+		view(src, index, count).order(order).asLongBuffer().get(dst, dstOffset, length);
+		return index + count;
+	}
+
+	/**
+	 * Writes {@code length} doubles of {@code src} from {@code offset} in the given byte order
+	 * into {@code dst} at the given index.
+	 * <p>
+	 * The position and the byte order of the buffer are not modified.
+	 *
+	 * @param dst The destination buffer.
+	 * @param index The index of the first byte to write.
+	 * @param src The doubles to write.
+	 * @param offset The index of the first double to write.
+	 * @param length The number of doubles to write.
+	 * @param order The byte order.
+	 * @return the index following the last written byte.
+	 * @throws IndexOutOfBoundsException if a range is out of the buffer's limit or the array's
+	 *         bounds.
+	 */
+	public static int putDoubles(ByteBuffer dst, int index, double[] src, int offset, int length, ByteOrder order) {
+		checkRange(src.length, offset, length);
+		final int count = byteCount(length, 8);
+		view(dst, index, count).order(order).asDoubleBuffer().put(src, offset, length);
+		return index + count;
+	}
+
+	/**
+	 * Reads {@code length} doubles in the given byte order from {@code src} at the given index
+	 * into {@code dst} from {@code dstOffset}.
+	 * <p>
+	 * The position and the byte order of the buffer are not modified.
+	 *
+	 * @param src The source buffer.
+	 * @param index The index of the first byte to read.
+	 * @param dst The destination array.
+	 * @param dstOffset The index of the first double to write.
+	 * @param length The number of doubles to read.
+	 * @param order The byte order.
+	 * @return the index following the last read byte.
+	 * @throws IndexOutOfBoundsException if a range is out of the buffer's limit or the array's
+	 *         bounds.
+	 */
+	public static int getDoubles(ByteBuffer src, int index, double[] dst, int dstOffset, int length, ByteOrder order) {
+		checkRange(dst.length, dstOffset, length);
+		final int count = byteCount(length, 8);
+		view(src, index, count).order(order).asDoubleBuffer().get(dst, dstOffset, length);
+		return index + count;
+	}
+
+	/**
+	 * Returns the number of bytes of {@code length} elements of {@code size} bytes.
+	 */
+	private static int byteCount(int length, int size) {
+		final long count = (long) length * size;
+		if (count > Integer.MAX_VALUE) {
+			throw new IndexOutOfBoundsException("length " + length + " is too large");
+		}// else
+		return (int) count;
+	}
+
+	/**
+	 * Returns a view of the {@code count} bytes of {@code buffer} from {@code index}, sharing its
+	 * content but not its position.
+	 */
+	private static ByteBuffer view(ByteBuffer buffer, int index, int count) {
+		checkRange(buffer.limit(), index, count);
+		final ByteBuffer view = buffer.duplicate();
+		view.limit(index + count).position(index);
+		return view;
+	}
+
+	/**
+	 * Returns the <em>zigzag</em> encoding of the given integer, mapping signed integers to
+	 * unsigned ones so that small absolute values have small encodings ({@code 0, -1, 1, -2, ...}
+	 * become {@code 0, 1, 2, 3, ...}).
+	 *
+	 * @param value The signed integer.
+	 * @return the zigzag encoding of the given integer.
+	 */
+	public static int zigZagEncode(int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	/**
+	 * Returns the signed integer corresponding to the given <em>zigzag</em> encoding.
+	 *
+	 * @param value The zigzag encoded integer.
+	 * @return the signed integer.
+	 * @see #zigZagEncode(int)
+	 */
+	public static int zigZagDecode(int value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Returns the <em>zigzag</em> encoding of the given long integer.
+	 *
+	 * @param value The signed long integer.
+	 * @return the zigzag encoding of the given long integer.
+	 * @see #zigZagEncode(int)
+	 */
+	public static long zigZagEncode(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	/**
+	 * Returns the signed long integer corresponding to the given <em>zigzag</em> encoding.
+	 *
+	 * @param value The zigzag encoded long integer.
+	 * @return the signed long integer.
+	 * @see #zigZagEncode(long)
+	 */
+	public static long zigZagDecode(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Returns the number of bytes of the <em>varint</em> (unsigned LEB128) encoding of the given
+	 * long integer, between {@code 1} and {@code 10}.
+	 *
+	 * @param value The long integer, considered unsigned.
+	 * @return the number of bytes of the varint encoding.
+	 */
+	public static int varintSize(long value) {
+		return (63 - Long.numberOfLeadingZeros(value | 1L)) / 7 + 1;
+	}
+
+	/**
+	 * Writes the <em>varint</em> (unsigned LEB128) encoding of the given long integer into
+	 * {@code dst} at the given offset: seven bits per byte, least significant first, the high bit
+	 * of each byte indicating whether another byte follows.
+	 * <p>
+	 * Signed values should be {@link #zigZagEncode(long) zigzag encoded} first.
+	 *
+	 * @param dst The destination array.
+	 * @param offset The index of the first byte to write.
+	 * @param value The long integer, considered unsigned.
+	 * @return the number of written bytes.
+	 * @throws IndexOutOfBoundsException if there is not enough bytes from {@code offset}.
+	 */
+	public static int putVarint(byte[] dst, int offset, long value) {
+		if ((value & ~0x7FL) == 0) {
+			checkRange(dst.length, offset, 1);
+			dst[offset] = (byte) value;
+			return 1;
+		}// else
+		checkRange(dst.length, offset, varintSize(value));
+		int i = offset;
+		long v = value;
+		while ((v & ~0x7FL) != 0) {
+			dst[i++] = (byte) (v | 0x80);
+			v >>>= 7;
+		}
+		dst[i++] = (byte) v;
+		return i - offset;
+	}
+
+	/**
+	 * Reads a <em>varint</em> (unsigned LEB128) from {@code src} at the given offset.
+	 * <p>
+	 * Only the shortest encoding of a value is accepted, as written by
+	 * {@link #putVarint(byte[], int, long)}, so the number of bytes read is always
+	 * {@link #varintSize(long) varintSize(value)}.
+	 *
+	 * @param src The source array.
+	 * @param offset The index of the first byte to read.
+	 * @return the long integer read.
+	 * @throws IllegalArgumentException if the varint is longer than ten bytes, is not the
+	 *         shortest encoding of its value (overlong) or overflows 64 bits.
+	 * @throws IndexOutOfBoundsException if the varint is truncated.
+	 */
+	public static long getVarint(byte[] src, int offset) {
+		checkRange(src.length, offset, 1);
+		final byte first = src[offset];
+		if (first >= 0) {
+			return first;
+		}// else
+		long value = first & 0x7FL;
+		int i = offset + 1;
+		for (int shift = 7; shift < 64; shift += 7) {
+			checkRange(src.length, i, 1);
+			final byte b = src[i++];
+			if (b >= 0) {
+				if (!isCanonicalLast(b, shift)) {
+					throw new IllegalArgumentException("Non-canonical or overflowing varint at " + offset);
+				}// else
+				return value | (long) b << shift;
+			}// else
+			value |= (b & 0x7FL) << shift;
+		}
+		throw new IllegalArgumentException("Malformed varint at " + offset);
+	}
+
+	/**
+	 * Writes the <em>varint</em> encodings of {@code length} long integers of {@code src} from
+	 * {@code offset} into {@code dst} from {@code dstOffset}.
+	 *
+	 * @param src The long integers, considered unsigned.
+	 * @param offset The index of the first long integer to write.
+	 * @param length The number of long integers to write.
+	 * @param dst The destination array.
+	 * @param dstOffset The index of the first byte to write.
+	 * @return the number of written bytes.
+	 * @throws IndexOutOfBoundsException if a range is out of an array's bounds.
+	 * @see #putVarint(byte[], int, long)
+	 */
+	public static int putVarints(long[] src, int offset, int length, byte[] dst, int dstOffset) {
+		checkRange(src.length, offset, length);
+		int j = dstOffset;
+		for (int i = offset, end = offset + length; i < end; i++) {
+			j += putVarint(dst, j, src[i]);
+		}
+		return j - dstOffset;
+	}
+
+	/**
+	 * Reads {@code length} <em>varints</em> from {@code src} at {@code offset} into {@code dst}
+	 * from {@code dstOffset}.
+	 *
+	 * @param src The source array.
+	 * @param offset The index of the first byte to read.
+	 * @param dst The destination array.
+	 * @param dstOffset The index of the first long integer to write.
+	 * @param length The number of varints to read.
+	 * @return the number of read bytes.
+	 * @throws IllegalArgumentException if a varint is longer than ten bytes, overlong or
+	 *         overflows 64 bits.
+	 * @throws IndexOutOfBoundsException if a range is out of an array's bounds.
+	 * @see #getVarint(byte[], int)
+	 */
+	public static int getVarints(byte[] src, int offset, long[] dst, int dstOffset, int length) {
+		checkRange(dst.length, dstOffset, length);
+		checkRange(src.length, offset, 0);
+		int i = offset;
+		for (int j = dstOffset, end = dstOffset + length; j < end; j++) {
+			if (i < src.length && src[i] >= 0) {
+				// Single byte fast path
+				dst[j] = src[i++];
+			} else {
+				final long value = getVarint(src, i);
+				dst[j] = value;
+				// Exact, overlong encodings being rejected
+				i += varintSize(value);
+			}
+		}
+		return i - offset;
+	}
+
+	/**
+	 * Writes the <em>varint</em> encoding of the given long integer at the position of
+	 * {@code dst}, then advances the position.
+	 *
+	 * @param dst The destination buffer.
+	 * @param value The long integer, considered unsigned.
+	 * @return the number of written bytes.
+	 * @throws BufferOverflowException if there is not enough remaining bytes.
+	 * @see #putVarint(byte[], int, long)
+	 */
+	public static int putVarint(ByteBuffer dst, long value) {
+		final int size = varintSize(value);
+		if (dst.remaining() < size) {
+			throw new BufferOverflowException();
+		}// else
+		long v = value;
+		while ((v & ~0x7FL) != 0) {
+			dst.put((byte) (v | 0x80));
+			v >>>= 7;
+		}
+		dst.put((byte) v);
+		return size;
+	}
+
+	/**
+	 * Reads a <em>varint</em> at the position of {@code src}, then advances the position.
+	 *
+	 * @param src The source buffer.
+	 * @return the long integer read.
+	 * @throws IllegalArgumentException if the varint is longer than ten bytes, overlong or
+	 *         overflows 64 bits.
+	 * @throws java.nio.BufferUnderflowException if the varint is truncated.
+	 * @see #getVarint(byte[], int)
+	 */
+	public static long getVarint(ByteBuffer src) {
+		final byte first = src.get();
+		if (first >= 0) {
+			return first;
+		}// else
+		long value = first & 0x7FL;
+		for (int shift = 7; shift < 64; shift += 7) {
+			final byte b = src.get();
+			if (b >= 0) {
+				if (!isCanonicalLast(b, shift)) {
+					throw new IllegalArgumentException("Non-canonical or overflowing varint before " + src.position());
+				}// else
+				return value | (long) b << shift;
+			}// else
+			value |= (b & 0x7FL) << shift;
+		}
+		throw new IllegalArgumentException("Malformed varint before " + src.position());
+	}
+
+	/**
+	 * Indicates if the given last byte of a multi-byte varint, shifted by {@code shift} bits, ends
+	 * the shortest encoding of a long integer: a zero last byte only pads the encoding, and the
+	 * tenth byte only carries the 64th bit.
+	 */
+	private static boolean isCanonicalLast(byte last, int shift) {
+		return last != 0 && (shift < 63 || last == 1);
+	}
+
+	/**
+	 * Writes the <em>varint</em> encodings of {@code length} long integers of {@code src} from
+	 * {@code offset} at the position of {@code dst}, then advances the position.
+	 *
+	 * @param src The long integers, considered unsigned.
+	 * @param offset The index of the first long integer to write.
+	 * @param length The number of long integers to write.
+	 * @param dst The destination buffer.
+	 * @return the number of written bytes.
+	 * @throws BufferOverflowException if there is not enough remaining bytes.
+	 */
+	public static int putVarints(long[] src, int offset, int length, ByteBuffer dst) {
+		checkRange(src.length, offset, length);
+		int written = 0;
+		for (int i = offset, end = offset + length; i < end; i++) {
+			written += putVarint(dst, src[i]);
+		}
+		return written;
+	}
+
+	/**
+	 * Reads {@code length} <em>varints</em> at the position of {@code src} into {@code dst} from
+	 * {@code dstOffset}, then advances the position.
+	 *
+	 * @param src The source buffer.
+	 * @param dst The destination array.
+	 * @param dstOffset The index of the first long integer to write.
+	 * @param length The number of varints to read.
+	 * @return the number of read bytes.
+	 * @throws IllegalArgumentException if a varint is longer than ten bytes, overlong or
+	 *         overflows 64 bits.
+	 * @throws java.nio.BufferUnderflowException if a varint is truncated.
+	 */
+	public static int getVarints(ByteBuffer src, long[] dst, int dstOffset, int length) {
+		checkRange(dst.length, dstOffset, length);
+		final int start = src.position();
+		for (int j = dstOffset, end = dstOffset + length; j < end; j++) {
+			dst[j] = getVarint(src);
+		}
+		return src.position() - start;
+	}
+
+	/**
+	 * Checks that {@code count} bytes are available from {@code offset} in an array of the given
+	 * length.
+	 */
+	static void checkRange(int length, int offset, int count) {
+		if (offset < 0 || count < 0 || offset > length - count) {
+			throw new IndexOutOfBoundsException(
+					"offset " + offset + ", count " + count + ", length " + length);
+		}
 	}
 
 	/**
@@ -110,6 +1158,140 @@ public class Bytes {
 		return 0x000000FF & b;
 	}
 
+	/**
+	 * Compares lexicographically the bytes of the given arrays as unsigned bytes.
+	 *
+	 * @param a The first array.
+	 * @param b The second array.
+	 * @return a negative integer, zero, or a positive integer as the first array is less than,
+	 *         equal to, or greater than the second.
+	 * @see #compareUnsigned(byte[], int, int, byte[], int, int)
+	 */
+	public static int compareUnsigned(byte[] a, byte[] b) {
+		return compareUnsigned(a, 0, a.length, b, 0, b.length);
+	}
+
+	/**
+	 * Compares lexicographically the given ranges of bytes as unsigned bytes, a range being less
+	 * than the other if it is a proper prefix of it.
+	 *
+	 * @param a The first array.
+	 * @param aOffset The index of the first byte of the first range.
+	 * @param aLength The number of bytes of the first range.
+	 * @param b The second array.
+	 * @param bOffset The index of the first byte of the second range.
+	 * @param bLength The number of bytes of the second range.
+	 * @return a negative integer, zero, or a positive integer as the first range is less than,
+	 *         equal to, or greater than the second.
+	 * @throws IndexOutOfBoundsException if a range is out of its array's bounds.
+	 */
+	public static int compareUnsigned(byte[] a, int aOffset, int aLength, byte[] b, int bOffset, int bLength) {
+		final int i = mismatch(a, aOffset, aLength, b, bOffset, bLength);
+		if (i < 0) {
+			return 0;
+		}// else
+		if (i == aLength || i == bLength) {
+			return aLength - bLength;
+		}// else
+		return (a[aOffset + i] & 0xFF) - (b[bOffset + i] & 0xFF);
+	}
+
+	/**
+	 * Returns a comparator of byte arrays comparing them lexicographically as unsigned bytes.
+	 *
+	 * @return the unsigned lexicographic comparator of byte arrays.
+	 * @see #compareUnsigned(byte[], byte[])
+	 */
+	public static Comparator<byte[]> unsignedComparator() {
+		return UNSIGNED_COMPARATOR;
+	}
+
+	/**
+	 * Returns the index, relative to the ranges, of the first byte that differs between the given
+	 * ranges.
+	 * <p>
+	 * If a range is a proper prefix of the other, the returned index is the length of the
+	 * shortest range.
+	 *
+	 * @param a The first array.
+	 * @param aOffset The index of the first byte of the first range.
+	 * @param aLength The number of bytes of the first range.
+	 * @param b The second array.
+	 * @param bOffset The index of the first byte of the second range.
+	 * @param bLength The number of bytes of the second range.
+	 * @return the relative index of the first mismatch, {@code -1} if the ranges are equal.
+	 * @throws IndexOutOfBoundsException if a range is out of its array's bounds.
+	 */
+	public static int mismatch(byte[] a, int aOffset, int aLength, byte[] b, int bOffset, int bLength) {
+		checkRange(a.length, aOffset, aLength);
+		checkRange(b.length, bOffset, bLength);
+		final int length = Math.min(aLength, bLength);
+		for (int i = 0; i < length; i++) {
+			if (a[aOffset + i] != b[bOffset + i]) {
+				return i;
+			}
+		}
+		return aLength == bLength ? -1 : length;
+	}
+
+	/**
+	 * Indicates if the given ranges of bytes are equal.
+	 * <p>
+	 * This method returns as soon as a difference is found, {@link #constantTimeEquals(byte[],
+	 * int, byte[], int, int)} should be used to compare secrets.
+	 *
+	 * @param a The first array.
+	 * @param aOffset The index of the first byte of the first range.
+	 * @param aLength The number of bytes of the first range.
+	 * @param b The second array.
+	 * @param bOffset The index of the first byte of the second range.
+	 * @param bLength The number of bytes of the second range.
+	 * @return {@code true} if the ranges have the same length and bytes;<br> {@code false}
+	 *         otherwise.
+	 * @throws IndexOutOfBoundsException if a range is out of its array's bounds.
+	 */
+	public static boolean equals(byte[] a, int aOffset, int aLength, byte[] b, int bOffset, int bLength) {
+		return aLength == bLength && mismatch(a, aOffset, aLength, b, bOffset, bLength) < 0;
+	}
+
+	/**
+	 * Indicates if the given arrays are equal, in a time depending only on their lengths.
+	 * <p>
+	 * Intended to compare digests or secrets without leaking the position of the first
+	 * difference through the comparison time.
+	 *
+	 * @param a The first array.
+	 * @param b The second array.
+	 * @return {@code true} if the arrays have the same length and bytes;<br> {@code false}
+	 *         otherwise.
+	 */
+	public static boolean constantTimeEquals(byte[] a, byte[] b) {
+		return a.length == b.length && constantTimeEquals(a, 0, b, 0, a.length);
+	}
+
+	/**
+	 * Indicates if the given ranges of bytes are equal, in a time depending only on
+	 * {@code length}.
+	 *
+	 * @param a The first array.
+	 * @param aOffset The index of the first byte of the first range.
+	 * @param b The second array.
+	 * @param bOffset The index of the first byte of the second range.
+	 * @param length The number of bytes to compare.
+	 * @return {@code true} if the ranges have the same bytes;<br> {@code false} otherwise.
+	 * @throws IndexOutOfBoundsException if a range is out of its array's bounds.
+	 * @see #constantTimeEquals(byte[], byte[])
+	 */
+	public static boolean constantTimeEquals(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+		checkRange(a.length, aOffset, length);
+		checkRange(b.length, bOffset, length);
+		int diff = 0;
+		for (int i = 0; i < length; i++) {
+			diff |= a[aOffset + i] ^ b[bOffset + i];
+		}
+		return diff == 0;
+	}
+
 	/**
 	 * Returns the hexadecimal string corresponding to the given byte.
 	 * <p>
@@ -119,11 +1301,7 @@ public class Bytes {
 	 * @return the hexadecimal string corresponding to the given byte.
 	 */
 	public static String byteToString(byte b) {
-		String hexString = Integer.toHexString(unsignedByteToInt(b));
-		if (hexString.length() < 2) {
-			hexString = '0' + hexString;
-		}
-		return hexString.toUpperCase();
+		return new String(new char[] {UPPER_HEX_DIGITS[(b >> 4) & 0xF], UPPER_HEX_DIGITS[b & 0xF]});
 	}
 
 	/**
@@ -135,11 +1313,157 @@ public class Bytes {
 	 * @return the hexadecimal string corresponding to the given bytes array.
 	 */
 	public static String bytesToHexString(byte[] bytes) {
-		StringBuilder str = new StringBuilder();
-		for (byte b : bytes) {
-			str.append(byteToString(b));
+		return bytesToHexString(bytes, 0, bytes.length, false);
+	}
+
+	/**
+	 * Returns the hexadecimal string corresponding to {@code length} bytes of the given array from
+	 * {@code offset}.
+	 *
+	 * @param bytes The byte array to convert to hexadecimal string.
+	 * @param offset The index of the first byte to convert.
+	 * @param length The number of bytes to convert.
+	 * @param lowerCase {@code true} for lower case letters, {@code false} for upper case ones.
+	 * @return the hexadecimal string corresponding to the bytes.
+	 * @throws IndexOutOfBoundsException if the range is out of the array's bounds.
+	 */
+	public static String bytesToHexString(byte[] bytes, int offset, int length, boolean lowerCase) {
+		checkRange(bytes.length, offset, length);
+		if (length > Integer.MAX_VALUE / 2) {
+			throw new OutOfMemoryError("Too many bytes for a hexadecimal string: " + length);
+		}// else
+		final char[] chars = new char[length * 2];
+		toHex(bytes, offset, length, chars, 0, lowerCase);
+		return new String(chars);
+	}
+
+	/**
+	 * Writes the hexadecimal characters of {@code length} bytes of {@code src} from
+	 * {@code offset} into {@code dst} from {@code dstOffset}.
+	 *
+	 * @param src The byte array to convert.
+	 * @param offset The index of the first byte to convert.
+	 * @param length The number of bytes to convert.
+	 * @param dst The destination array, receiving {@code 2 * length} characters.
+	 * @param dstOffset The index of the first character to write.
+	 * @param lowerCase {@code true} for lower case letters, {@code false} for upper case ones.
+	 * @return the index following the last written character.
+	 * @throws IndexOutOfBoundsException if a range is out of an array's bounds.
+	 */
+	public static int toHex(byte[] src, int offset, int length, char[] dst, int dstOffset, boolean lowerCase) {
+		checkRange(src.length, offset, length);
+		checkRange(dst.length, dstOffset, length * 2);
+		final char[] digits = lowerCase ? LOWER_HEX_DIGITS : UPPER_HEX_DIGITS;
+		int j = dstOffset;
+		for (int i = offset, end = offset + length; i < end; i++) {
+			final int b = src[i];
+			dst[j++] = digits[(b >> 4) & 0xF];
+			dst[j++] = digits[b & 0xF];
+		}
+		return j;
+	}
+
+	/**
+	 * Appends the hexadecimal characters of {@code length} bytes of {@code src} from
+	 * {@code offset} to the given {@link StringBuilder}.
+	 *
+	 * @param dst The {@link StringBuilder} to append to.
+	 * @param src The byte array to convert.
+	 * @param offset The index of the first byte to convert.
+	 * @param length The number of bytes to convert.
+	 * @param lowerCase {@code true} for lower case letters, {@code false} for upper case ones.
+	 * @return the given {@link StringBuilder}.
+	 * @throws IndexOutOfBoundsException if the range is out of the array's bounds.
+	 */
+	public static StringBuilder appendHex(StringBuilder dst, byte[] src, int offset, int length,
+			boolean lowerCase) {
+		checkRange(src.length, offset, length);
+		dst.ensureCapacity(dst.length() + length * 2);
+		final char[] digits = lowerCase ? LOWER_HEX_DIGITS : UPPER_HEX_DIGITS;
+		for (int i = offset, end = offset + length; i < end; i++) {
+			final int b = src[i];
+			dst.append(digits[(b >> 4) & 0xF]).append(digits[b & 0xF]);
+		}
+		return dst;
+	}
+
+	/**
+	 * Appends the hexadecimal characters of {@code length} bytes of {@code src} from
+	 * {@code offset} to the given {@link Appendable}.
+	 *
+	 * @param dst The {@link Appendable} to append to.
+	 * @param src The byte array to convert.
+	 * @param offset The index of the first byte to convert.
+	 * @param length The number of bytes to convert.
+	 * @param lowerCase {@code true} for lower case letters, {@code false} for upper case ones.
+	 * @return the given {@link Appendable}.
+	 * @throws IOException if the {@link Appendable} fails.
+	 * @throws IndexOutOfBoundsException if the range is out of the array's bounds.
+	 */
+	public static Appendable appendHex(Appendable dst, byte[] src, int offset, int length, boolean lowerCase)
+			throws IOException {
+		checkRange(src.length, offset, length);
+		final char[] digits = lowerCase ? LOWER_HEX_DIGITS : UPPER_HEX_DIGITS;
+		for (int i = offset, end = offset + length; i < end; i++) {
+			final int b = src[i];
+			dst.append(digits[(b >> 4) & 0xF]).append(digits[b & 0xF]);
+		}
+		return dst;
+	}
+
+	/**
+	 * Returns the bytes corresponding to the given hexadecimal string.
+	 * <p>
+	 * Both upper and lower case letters are accepted.
+	 *
+	 * @param hex The hexadecimal string, with an even number of characters.
+	 * @return the bytes corresponding to the given hexadecimal string.
+	 * @throws IllegalArgumentException if the string has an odd length or a character which is not
+	 *         an hexadecimal digit.
+	 */
+	public static byte[] hexToBytes(CharSequence hex) {
+		if ((hex.length() & 1) != 0) {
+			throw new IllegalArgumentException("Odd number of hexadecimal digits : " + hex.length());
+		}// else
+		final byte[] bytes = new byte[hex.length() / 2];
+		hexToBytes(hex, 0, hex.length(), bytes, 0);
+		return bytes;
+	}
+
+	/**
+	 * Writes the bytes corresponding to the hexadecimal characters of {@code hex} between
+	 * {@code start} (inclusive) and {@code end} (exclusive) into {@code dst} from {@code offset}.
+	 *
+	 * @param hex The hexadecimal characters.
+	 * @param start The index of the first character to decode.
+	 * @param end The index following the last character to decode.
+	 * @param dst The destination array, receiving {@code (end - start) / 2} bytes.
+	 * @param offset The index of the first byte to write.
+	 * @return the index following the last written byte.
+	 * @throws IllegalArgumentException if the range has an odd length or a character which is not
+	 *         an hexadecimal digit.
+	 * @throws IndexOutOfBoundsException if a range is out of the bounds.
+	 */
+	public static int hexToBytes(CharSequence hex, int start, int end, byte[] dst, int offset) {
+		checkRange(hex.length(), start, end - start);
+		if (((end - start) & 1) != 0) {
+			throw new IllegalArgumentException("Odd number of hexadecimal digits : " + (end - start));
+		}// else
+		checkRange(dst.length, offset, (end - start) / 2);
+		int j = offset;
+		for (int i = start; i < end; i += 2) {
+			dst[j++] = (byte) (hexValue(hex, i) << 4 | hexValue(hex, i + 1));
 		}
-		return str.toString();
+		return j;
+	}
+
+	private static int hexValue(CharSequence hex, int index) {
+		final char c = hex.charAt(index);
+		final int value = c < 128 ? HEX_VALUES[c] : -1;
+		if (value < 0) {
+			throw new IllegalArgumentException("Not an hexadecimal digit at " + index + " : " + c);
+		}// else
+		return value;
 	}
 
 	// Suppressing default constructor, ensuring non-instantiability
@@ -0,0 +1,443 @@
+/*
+ * Copyright (c) 2012-2017 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.security.MessageDigest;
+
+/**
+ * A {@code ContentChunker} splits content in chunks which boundaries depend only on the bytes
+ * around them (<em>content-defined chunking</em>), so that an insertion or a deletion only
+ * changes the chunks around it, the other chunks keeping the same content and digest. Used to
+ * deduplicate successive versions of a content.
+ * <p>
+ * A boundary is put after a byte when the {@link GearHash} of the preceding bytes matches a mask,
+ * the chunks having a size between {@code minSize} and {@code maxSize}. The {@code minSize}
+ * first bytes of a chunk are not hashed. As in FastCDC, a stricter mask is used before
+ * {@code averageSize} and a looser one after, concentrating the sizes around {@code averageSize}.
+ * <p>
+ * The content is read into a single buffer scanned in place, each chunk being fed to its digest
+ * from the buffer without copy. A channel is read into a direct buffer, so that the JDK does not
+ * copy the bytes through a temporary direct buffer; the digests may still copy them from the
+ * direct buffer, {@link MessageDigest} working on arrays.
+ * <p>
+ * {@code ContentChunker} is non-mutable and <em>thread-safe</em>.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ * @see GearHash
+ */
+public final class ContentChunker {
+
+	/**
+	 * A {@code ChunkListener} receives the chunks of a content, in order.
+	 */
+	public interface ChunkListener {
+
+		/**
+		 * Receives a chunk.
+		 *
+		 * @param offset The position of the chunk in the content.
+		 * @param length The size of the chunk.
+		 * @param digest The digest of the chunk, {@code null} if no hasher is used.
+		 */
+		void onChunk(long offset, int length, byte[] digest);
+	}
+
+	/**
+	 * The size of the buffer in which the content is read.
+	 */
+	private static final int BUFFER_SIZE = 256 * 1024;
+
+	private final int minSize;
+
+	private final int averageSize;
+
+	private final int maxSize;
+
+	/**
+	 * The mask used before {@code averageSize}, with more bits than the average.
+	 */
+	private final long strictMask;
+
+	/**
+	 * The mask used after {@code averageSize}, with less bits than the average.
+	 */
+	private final long looseMask;
+
+	/**
+	 * Creates a new {@code ContentChunker}.
+	 *
+	 * @param minSize The minimum size of the chunks.
+	 * @param averageSize The expected average size of the chunks, rounded to a power of two for
+	 *        the masks.
+	 * @param maxSize The maximum size of the chunks.
+	 * @throws IllegalArgumentException if {@code 0 < minSize <= averageSize <= maxSize} is not
+	 *         verified or if {@code averageSize < 4}.
+	 */
+	public ContentChunker(int minSize, int averageSize, int maxSize) {
+		if (minSize <= 0 || averageSize < minSize || maxSize < averageSize || averageSize < 4) {
+			throw new IllegalArgumentException("Invalid sizes : " + minSize + ", " + averageSize + ", " + maxSize);
+		}// else
+		this.minSize = minSize;
+		this.averageSize = averageSize;
+		this.maxSize = maxSize;
+		final int bits = 31 - Integer.numberOfLeadingZeros(averageSize);
+		strictMask = highBits(bits + 2);
+		looseMask = highBits(bits - 2);
+	}
+
+	private static long highBits(int count) {
+		return count <= 0 ? 0L : -1L << (64 - count);
+	}
+
+	/**
+	 * Returns the minimum size of the chunks.
+	 *
+	 * @return the minimum size of the chunks.
+	 */
+	public int getMinSize() {
+		return minSize;
+	}
+
+	/**
+	 * Returns the expected average size of the chunks.
+	 *
+	 * @return the expected average size of the chunks.
+	 */
+	public int getAverageSize() {
+		return averageSize;
+	}
+
+	/**
+	 * Returns the maximum size of the chunks.
+	 *
+	 * @return the maximum size of the chunks.
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Returns the size of the chunk starting at {@code offset}, the content ending after
+	 * {@code length} bytes.
+	 *
+	 * @param src The source array.
+	 * @param offset The index of the first byte of the chunk.
+	 * @param length The number of bytes remaining in the content.
+	 * @return the size of the chunk, {@code 0} if {@code length == 0}.
+	 * @throws IndexOutOfBoundsException if the range is out of the array's bounds.
+	 */
+	public int nextChunk(byte[] src, int offset, int length) {
+		Bytes.checkRange(src.length, offset, length);
+		final int boundary = scan(src, offset, offset + length, new Cursor(null, null));
+		return boundary >= 0 ? boundary - offset : length;
+	}
+
+	/**
+	 * Splits {@code length} bytes of {@code src} from {@code offset} in chunks.
+	 *
+	 * @param src The source array.
+	 * @param offset The index of the first byte of the content.
+	 * @param length The size of the content.
+	 * @param hasher The hasher computing the digests of the chunks, {@code null} for none.
+	 * @param listener The listener receiving the chunks.
+	 * @throws IndexOutOfBoundsException if the range is out of the array's bounds.
+	 */
+	public void chunk(byte[] src, int offset, int length, Hasher hasher, ChunkListener listener) {
+		Bytes.checkRange(src.length, offset, length);
+		final Cursor cursor = new Cursor(hasher, listener);
+		try {
+			feed(src, offset, offset + length, cursor);
+			cursor.finish();
+		} finally {
+			cursor.release();
+		}
+	}
+
+	/**
+	 * Splits the remaining content of the given stream in chunks. The stream is not closed.
+	 *
+	 * @param in The stream to split.
+	 * @param hasher The hasher computing the digests of the chunks, {@code null} for none.
+	 * @param listener The listener receiving the chunks.
+	 * @return the size of the content.
+	 * @throws IOException if an I/O error occurs while reading the stream.
+	 */
+	public long chunk(InputStream in, Hasher hasher, ChunkListener listener) throws IOException {
+		final byte[] buffer = new byte[BUFFER_SIZE];
+		final Cursor cursor = new Cursor(hasher, listener);
+		try {
+			int read;
+			while ((read = in.read(buffer)) >= 0) {
+				feed(buffer, 0, read, cursor);
+			}
+			return cursor.finish();
+		} finally {
+			cursor.release();
+		}
+	}
+
+	/**
+	 * Splits the remaining content of the given channel in chunks. The channel is not closed.
+	 * <p>
+	 * The content is read into a direct buffer allocated for the call.
+	 *
+	 * @param channel The blocking channel to split.
+	 * @param hasher The hasher computing the digests of the chunks, {@code null} for none.
+	 * @param listener The listener receiving the chunks.
+	 * @return the size of the content.
+	 * @throws IOException if an I/O error occurs while reading the channel.
+	 */
+	public long chunk(ReadableByteChannel channel, Hasher hasher, ChunkListener listener) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		final Cursor cursor = new Cursor(hasher, listener);
+		try {
+			while (channel.read(buffer) >= 0) {
+				buffer.flip();
+				feed(buffer, buffer.position(), buffer.limit(), cursor);
+				buffer.clear();
+			}
+			return cursor.finish();
+		} finally {
+			cursor.release();
+		}
+	}
+
+	/**
+	 * Feeds the bytes from {@code start} to {@code end} to the current chunk, emitting the chunks
+	 * ending before {@code end}.
+	 */
+	private void feed(byte[] src, int start, int end, Cursor cursor) {
+		int chunkStart = start;
+		while (chunkStart < end) {
+			final int previous = cursor.length;
+			final int boundary = scan(src, chunkStart, end, cursor);
+			if (boundary < 0) {
+				cursor.update(src, chunkStart, end - chunkStart);
+				return;
+			}// else
+			cursor.update(src, chunkStart, boundary - chunkStart);
+			cursor.emit(previous + boundary - chunkStart);
+			chunkStart = boundary;
+		}
+	}
+
+	/**
+	 * Feeds the bytes from {@code start} to {@code end} to the current chunk, emitting the chunks
+	 * ending before {@code end}.
+	 */
+	private void feed(ByteBuffer src, int start, int end, Cursor cursor) {
+		int chunkStart = start;
+		while (chunkStart < end) {
+			final int previous = cursor.length;
+			final int boundary = scan(src, chunkStart, end, cursor);
+			if (boundary < 0) {
+				cursor.update(src, chunkStart, end);
+				return;
+			}// else
+			cursor.update(src, chunkStart, boundary);
+			cursor.emit(previous + boundary - chunkStart);
+			chunkStart = boundary;
+		}
+	}
+
+	/**
+	 * Scans the bytes from {@code start} to {@code end} for the boundary of the current chunk.
+	 *
+	 * @return the index following the last byte of the chunk, {@code -1} if the chunk does not
+	 *         end before {@code end}.
+	 */
+	private int scan(byte[] src, int start, int end, Cursor cursor) {
+		final long[] table = GearHash.TABLE;
+		int i = start;
+		int length = cursor.length;
+		long h = cursor.hash;
+		if (length < minSize) {
+			// The first bytes are not hashed
+			final int skip = Math.min(minSize - length, end - i);
+			i += skip;
+			length += skip;
+		}
+		if (length < averageSize) {
+			final int limit = i + Math.min(end - i, averageSize - length);
+			final int from = i;
+			for (; i < limit; i++) {
+				h = (h << 1) + table[src[i] & 0xFF];
+				if ((h & strictMask) == 0) {
+					cursor.reset();
+					return i + 1;
+				}
+			}
+			length += i - from;
+		}
+		if (length >= averageSize) {
+			final int limit = i + Math.min(end - i, maxSize - length);
+			final int from = i;
+			for (; i < limit; i++) {
+				h = (h << 1) + table[src[i] & 0xFF];
+				if ((h & looseMask) == 0) {
+					cursor.reset();
+					return i + 1;
+				}
+			}
+			length += i - from;
+			if (length == maxSize) {
+				cursor.reset();
+				return i;
+			}
+		}
+		cursor.length = length;
+		cursor.hash = h;
+		return -1;
+	}
+
+	/**
+	 * Scans the bytes of the buffer from {@code start} to {@code end} for the boundary of the
+	 * current chunk, with absolute reads.
+	 *
+	 * @return the index following the last byte of the chunk, {@code -1} if the chunk does not
+	 *         end before {@code end}.
+	 */
+	private int scan(ByteBuffer src, int start, int end, Cursor cursor) {
+		final long[] table = GearHash.TABLE;
+		int i = start;
+		int length = cursor.length;
+		long h = cursor.hash;
+		if (length < minSize) {
+			// The first bytes are not hashed
+			final int skip = Math.min(minSize - length, end - i);
+			i += skip;
+			length += skip;
+		}
+		if (length < averageSize) {
+			final int limit = i + Math.min(end - i, averageSize - length);
+			final int from = i;
+			for (; i < limit; i++) {
+				h = (h << 1) + table[src.get(i) & 0xFF];
+				if ((h & strictMask) == 0) {
+					cursor.reset();
+					return i + 1;
+				}
+			}
+			length += i - from;
+		}
+		if (length >= averageSize) {
+			final int limit = i + Math.min(end - i, maxSize - length);
+			final int from = i;
+			for (; i < limit; i++) {
+				h = (h << 1) + table[src.get(i) & 0xFF];
+				if ((h & looseMask) == 0) {
+					cursor.reset();
+					return i + 1;
+				}
+			}
+			length += i - from;
+			if (length == maxSize) {
+				cursor.reset();
+				return i;
+			}
+		}
+		cursor.length = length;
+		cursor.hash = h;
+		return -1;
+	}
+
+	@Override
+	public String toString() {
+		return "ContentChunker[" + minSize + ", " + averageSize + ", " + maxSize + ']';
+	}
+
+	/**
+	 * The state of the chunking of a content.
+	 */
+	private static final class Cursor {
+
+		private final Hasher hasher;
+
+		private final MessageDigest digest;
+
+		private final ChunkListener listener;
+
+		/**
+		 * The number of bytes of the current chunk.
+		 */
+		int length;
+
+		/**
+		 * The rolling hash of the current chunk.
+		 */
+		long hash;
+
+		/**
+		 * The position of the current chunk in the content.
+		 */
+		private long offset;
+
+		Cursor(Hasher hasher, ChunkListener listener) {
+			this.hasher = hasher;
+			this.listener = listener;
+			digest = hasher != null ? hasher.acquire() : null;
+		}
+
+		void reset() {
+			length = 0;
+			hash = 0L;
+		}
+
+		void update(byte[] src, int offset, int length) {
+			if (digest != null && length > 0) {
+				digest.update(src, offset, length);
+			}
+		}
+
+		/**
+		 * Updates the digest with the bytes of the buffer from {@code start} to {@code end}, the
+		 * limit of the buffer being restored.
+		 */
+		void update(ByteBuffer src, int start, int end) {
+			if (digest != null && end > start) {
+				final int limit = src.limit();
+				src.position(start);
+				src.limit(end);
+				digest.update(src);
+				src.limit(limit);
+			}
+		}
+
+		void emit(int chunkLength) {
+			listener.onChunk(offset, chunkLength, digest != null ? digest.digest() : null);
+			offset += chunkLength;
+		}
+
+		/**
+		 * Emits the last chunk.
+		 *
+		 * @return the size of the content.
+		 */
+		long finish() {
+			if (length > 0) {
+				emit(length);
+				reset();
+			}
+			return offset;
+		}
+
+		void release() {
+			if (digest != null) {
+				hasher.release(digest);
+			}
+		}
+	}
+}
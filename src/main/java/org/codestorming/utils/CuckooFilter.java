@@ -0,0 +1,456 @@
+/*
+ * Copyright (c) 2012-2017 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A {@code CuckooFilter} is a compact probabilistic set supporting the removal of keys:
+ * {@link #mightContain(long)} never answers {@code false} for an added key, but may answer
+ * {@code true} for a key which was not added, with a probability of about {@code 0.012%}.
+ * <p>
+ * Each key is hashed once with {@link Hash#xxHash64(byte[], int, int, long) xxHash64}, giving a
+ * 16 bits <em>fingerprint</em> and two candidate buckets of four fingerprints, a bucket being a
+ * {@code long} of a {@code long[]}. When both buckets are full, fingerprints are moved to their
+ * other bucket to make room (<em>cuckoo hashing</em>). The filter holds about {@code 95%} of its
+ * capacity before {@link #add(long)} fails.
+ * <p>
+ * Only keys which were added may be {@link #remove(long) removed}, removing another key could
+ * remove the fingerprint of an added key colliding with it.
+ * <p>
+ * {@code CuckooFilter} is <em>thread-safe</em>: a fingerprint may move between buckets during
+ * an insertion, so its methods are <em>synchronized</em>.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ * @see BloomFilter
+ */
+public final class CuckooFilter {
+
+	private static final int SLOTS = 4;
+
+	private static final int MAX_KICKS = 500;
+
+	private static final int HEADER = 18;
+
+	/**
+	 * The maximum number of buckets, so that the serialized filter fits in a byte array.
+	 */
+	private static final int MAX_BUCKETS = Integer.highestOneBit((Integer.MAX_VALUE - 8 - HEADER) / 8);
+
+	/**
+	 * The buckets, four 16 bits fingerprints each, {@code 0} for an empty slot.
+	 */
+	private final long[] buckets;
+
+	private final int mask;
+
+	private long count;
+
+	/**
+	 * The fingerprint which could not be placed after {@link #MAX_KICKS} moves, {@code 0} if none.
+	 */
+	private int victim;
+
+	private int victimIndex;
+
+	/**
+	 * The state of the random generator choosing the moved fingerprints.
+	 */
+	private long random = 0x2545F4914F6CDD1DL;
+
+	/**
+	 * Creates a new {@code CuckooFilter}.
+	 *
+	 * @param expectedInsertions The expected number of keys.
+	 * @throws IllegalArgumentException if {@code expectedInsertions <= 0} or if the filter would
+	 *         be too large to be {@link #toByteArray() serialized}.
+	 */
+	public CuckooFilter(long expectedInsertions) {
+		if (expectedInsertions <= 0) {
+			throw new IllegalArgumentException("expectedInsertions must be positive.");
+		}// else
+		final long needed = (long) Math.ceil(expectedInsertions / (SLOTS * 0.95));
+		if (needed > MAX_BUCKETS) {
+			throw new IllegalArgumentException("The filter would be too large.");
+		}// else
+		final int size = needed <= 1 ? 1 : Integer.highestOneBit((int) needed - 1) << 1;
+		buckets = new long[size];
+		mask = size - 1;
+	}
+
+	private CuckooFilter(long[] buckets, long count, int victim, int victimIndex) {
+		this.buckets = buckets;
+		mask = buckets.length - 1;
+		this.count = count;
+		this.victim = victim;
+		this.victimIndex = victimIndex;
+	}
+
+	/**
+	 * Reads a filter serialized by {@link #toByteArray()}.
+	 *
+	 * @param src The source array.
+	 * @param offset The index of the first byte of the serialized filter.
+	 * @return the filter.
+	 * @throws IllegalArgumentException if the bytes are not a valid serialized filter.
+	 * @throws IndexOutOfBoundsException if the serialized filter is truncated.
+	 */
+	public static CuckooFilter fromByteArray(byte[] src, int offset) {
+		Bytes.checkRange(src.length, offset, HEADER);
+		final int size = Bytes.getInt(src, offset);
+		final long count = Bytes.getLong(src, offset + 4);
+		final int victim = Bytes.getShort(src, offset + 12) & 0xFFFF;
+		final int victimIndex = Bytes.getInt(src, offset + 14);
+		if (size <= 0 || size > MAX_BUCKETS || Integer.bitCount(size) != 1 || count < 0
+				|| victimIndex < 0 || victimIndex >= size) {
+			throw new IllegalArgumentException("Invalid serialized filter.");
+		}// else
+		final long[] buckets = new long[size];
+		Bytes.getLongs(src, offset + HEADER, buckets, 0, size, ByteOrder.BIG_ENDIAN);
+		// The count must be the one of the fingerprints, at most the capacity plus the victim
+		long fingerprints = victim != 0 ? 1 : 0;
+		for (long bucket : buckets) {
+			for (int slot = 0; slot < SLOTS; slot++) {
+				if (get(bucket, slot) != 0) {
+					fingerprints++;
+				}
+			}
+		}
+		if (count != fingerprints) {
+			throw new IllegalArgumentException("Invalid serialized filter.");
+		}// else
+		return new CuckooFilter(buckets, count, victim, victimIndex);
+	}
+
+	/**
+	 * Returns the number of keys in this filter.
+	 *
+	 * @return the number of keys in this filter.
+	 */
+	public synchronized long size() {
+		return count;
+	}
+
+	/**
+	 * Returns the maximum number of keys this filter could hold.
+	 *
+	 * @return the number of slots of this filter.
+	 */
+	public long getCapacity() {
+		return (long) buckets.length * SLOTS;
+	}
+
+	/**
+	 * Adds the given key.
+	 *
+	 * @param key The key.
+	 * @return {@code true} if the key was added;<br> {@code false} if the filter is full.
+	 */
+	public synchronized boolean add(long key) {
+		return addHash(Hash.xxHash64(key, 0L));
+	}
+
+	/**
+	 * Adds {@code length} bytes of {@code key} from {@code offset} as a key.
+	 *
+	 * @param key The array containing the key.
+	 * @param offset The index of the first byte of the key.
+	 * @param length The number of bytes of the key.
+	 * @return {@code true} if the key was added;<br> {@code false} if the filter is full.
+	 * @throws IndexOutOfBoundsException if the range is out of the array's bounds.
+	 */
+	public synchronized boolean add(byte[] key, int offset, int length) {
+		return addHash(Hash.xxHash64(key, offset, length, 0L));
+	}
+
+	/**
+	 * Adds the remaining bytes of the given buffer as a key, without modifying its position.
+	 *
+	 * @param key The buffer containing the key.
+	 * @return {@code true} if the key was added;<br> {@code false} if the filter is full.
+	 */
+	public synchronized boolean add(ByteBuffer key) {
+		return addHash(Hash.xxHash64(key, 0L));
+	}
+
+	/**
+	 * Adds {@code length} keys of {@code keys} from {@code offset}, stopping at the first key
+	 * which cannot be added.
+	 *
+	 * @param keys The keys.
+	 * @param offset The index of the first key.
+	 * @param length The number of keys.
+	 * @return the number of added keys, lower than {@code length} if the filter is full.
+	 * @throws IndexOutOfBoundsException if the range is out of the array's bounds.
+	 */
+	public synchronized int add(long[] keys, int offset, int length) {
+		Bytes.checkRange(keys.length, offset, length);
+		for (int i = 0; i < length; i++) {
+			if (!addHash(Hash.xxHash64(keys[offset + i], 0L))) {
+				return i;
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * Indicates if the given key might have been added.
+	 *
+	 * @param key The key.
+	 * @return {@code true} if the key might have been added;<br> {@code false} if it certainly
+	 *         was not.
+	 */
+	public synchronized boolean mightContain(long key) {
+		return containsHash(Hash.xxHash64(key, 0L));
+	}
+
+	/**
+	 * Indicates if {@code length} bytes of {@code key} from {@code offset} might have been added
+	 * as a key.
+	 *
+	 * @param key The array containing the key.
+	 * @param offset The index of the first byte of the key.
+	 * @param length The number of bytes of the key.
+	 * @return {@code true} if the key might have been added;<br> {@code false} if it certainly
+	 *         was not.
+	 * @throws IndexOutOfBoundsException if the range is out of the array's bounds.
+	 */
+	public synchronized boolean mightContain(byte[] key, int offset, int length) {
+		return containsHash(Hash.xxHash64(key, offset, length, 0L));
+	}
+
+	/**
+	 * Indicates if the remaining bytes of the given buffer might have been added as a key.
+	 *
+	 * @param key The buffer containing the key.
+	 * @return {@code true} if the key might have been added;<br> {@code false} if it certainly
+	 *         was not.
+	 */
+	public synchronized boolean mightContain(ByteBuffer key) {
+		return containsHash(Hash.xxHash64(key, 0L));
+	}
+
+	/**
+	 * Checks {@code length} keys of {@code keys} from {@code offset}.
+	 *
+	 * @param keys The keys.
+	 * @param offset The index of the first key.
+	 * @param length The number of keys.
+	 * @param results The array receiving the result of {@link #mightContain(long)} for each key.
+	 * @param resultsOffset The index of the result of the first key.
+	 * @return the number of keys which might have been added.
+	 * @throws IndexOutOfBoundsException if a range is out of an array's bounds.
+	 */
+	public synchronized int mightContain(long[] keys, int offset, int length, boolean[] results, int resultsOffset) {
+		Bytes.checkRange(keys.length, offset, length);
+		Bytes.checkRange(results.length, resultsOffset, length);
+		int found = 0;
+		for (int i = 0; i < length; i++) {
+			final boolean result = containsHash(Hash.xxHash64(keys[offset + i], 0L));
+			results[resultsOffset + i] = result;
+			if (result) {
+				found++;
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Removes the given key, which must have been added.
+	 *
+	 * @param key The key.
+	 * @return {@code true} if a fingerprint of the key was removed;<br> {@code false} otherwise.
+	 */
+	public synchronized boolean remove(long key) {
+		return removeHash(Hash.xxHash64(key, 0L));
+	}
+
+	/**
+	 * Removes {@code length} bytes of {@code key} from {@code offset} as a key, which must have
+	 * been added.
+	 *
+	 * @param key The array containing the key.
+	 * @param offset The index of the first byte of the key.
+	 * @param length The number of bytes of the key.
+	 * @return {@code true} if a fingerprint of the key was removed;<br> {@code false} otherwise.
+	 * @throws IndexOutOfBoundsException if the range is out of the array's bounds.
+	 */
+	public synchronized boolean remove(byte[] key, int offset, int length) {
+		return removeHash(Hash.xxHash64(key, offset, length, 0L));
+	}
+
+	private static int fingerprint(long hash) {
+		final int fingerprint = (int) (hash >>> 48);
+		return fingerprint != 0 ? fingerprint : 1;
+	}
+
+	private int index(long hash) {
+		return (int) hash & mask;
+	}
+
+	/**
+	 * Returns the other bucket of the given fingerprint, an involution.
+	 */
+	private int alternate(int index, int fingerprint) {
+		return (index ^ (fingerprint * 0x5BD1E995)) & mask;
+	}
+
+	private boolean addHash(long hash) {
+		if (victim != 0) {
+			return false;
+		}// else
+		place(index(hash), fingerprint(hash));
+		return true;
+	}
+
+	private boolean containsHash(long hash) {
+		final int fingerprint = fingerprint(hash);
+		final int index = index(hash);
+		final int other = alternate(index, fingerprint);
+		if (victim == fingerprint && (victimIndex == index || victimIndex == other)) {
+			return true;
+		}// else
+		return find(buckets[index], fingerprint) >= 0 || find(buckets[other], fingerprint) >= 0;
+	}
+
+	private boolean removeHash(long hash) {
+		final int fingerprint = fingerprint(hash);
+		final int index = index(hash);
+		final int other = alternate(index, fingerprint);
+		if (victim == fingerprint && (victimIndex == index || victimIndex == other)) {
+			victim = 0;
+			count--;
+			return true;
+		}// else
+		if (delete(index, fingerprint) || delete(other, fingerprint)) {
+			count--;
+			if (victim != 0) {
+				// A slot is free for the victim
+				final int fingerprintToPlace = victim;
+				final int victimBucket = victimIndex;
+				victim = 0;
+				count--;
+				place(victimBucket, fingerprintToPlace);
+			}
+			return true;
+		}// else
+		return false;
+	}
+
+	/**
+	 * Places a fingerprint in one of its buckets, moving others to their other bucket if both are
+	 * full. The last moved fingerprint is kept aside if no free slot is found.
+	 */
+	private void place(int index, int fingerprint) {
+		if (insert(index, fingerprint) || insert(alternate(index, fingerprint), fingerprint)) {
+			count++;
+			return;
+		}// else
+		int current = fingerprint;
+		int bucket = (nextRandom() & 1) != 0 ? alternate(index, fingerprint) : index;
+		for (int kick = 0; kick < MAX_KICKS; kick++) {
+			final int slot = (int) (nextRandom() & (SLOTS - 1));
+			final int evicted = get(buckets[bucket], slot);
+			buckets[bucket] = with(buckets[bucket], slot, current);
+			current = evicted;
+			bucket = alternate(bucket, current);
+			if (insert(bucket, current)) {
+				count++;
+				return;
+			}
+		}
+		// Kept aside, the filter being now full
+		victim = current;
+		victimIndex = bucket;
+		count++;
+	}
+
+	private boolean insert(int index, int fingerprint) {
+		final int slot = find(buckets[index], 0);
+		if (slot < 0) {
+			return false;
+		}// else
+		buckets[index] = with(buckets[index], slot, fingerprint);
+		return true;
+	}
+
+	private boolean delete(int index, int fingerprint) {
+		final int slot = find(buckets[index], fingerprint);
+		if (slot < 0) {
+			return false;
+		}// else
+		buckets[index] = with(buckets[index], slot, 0);
+		return true;
+	}
+
+	private static int find(long bucket, int fingerprint) {
+		for (int slot = 0; slot < SLOTS; slot++) {
+			if (get(bucket, slot) == fingerprint) {
+				return slot;
+			}
+		}
+		return -1;
+	}
+
+	private static int get(long bucket, int slot) {
+		return (int) (bucket >>> (slot << 4)) & 0xFFFF;
+	}
+
+	private static long with(long bucket, int slot, int fingerprint) {
+		final int shift = slot << 4;
+		return (bucket & ~(0xFFFFL << shift)) | ((long) fingerprint << shift);
+	}
+
+	private long nextRandom() {
+		// Xorshift
+		long x = random;
+		x ^= x << 13;
+		x ^= x >>> 7;
+		x ^= x << 17;
+		return random = x;
+	}
+
+	/**
+	 * Removes all the keys.
+	 */
+	public synchronized void clear() {
+		for (int i = 0; i < buckets.length; i++) {
+			buckets[i] = 0L;
+		}
+		count = 0;
+		victim = 0;
+		victimIndex = 0;
+	}
+
+	/**
+	 * Serializes this filter: the number of buckets, the number of keys, the pending fingerprint
+	 * and its bucket, and the buckets, in big-endian.
+	 *
+	 * @return the serialized filter.
+	 * @see #fromByteArray(byte[], int)
+	 */
+	public synchronized byte[] toByteArray() {
+		final byte[] bytes = new byte[HEADER + buckets.length * 8];
+		int index = Bytes.putInt(bytes, 0, buckets.length);
+		index = Bytes.putLong(bytes, index, count);
+		index = Bytes.putShort(bytes, index, (short) victim);
+		Bytes.putInt(bytes, index, victimIndex);
+		Bytes.putLongs(buckets, 0, buckets.length, bytes, HEADER, ByteOrder.BIG_ENDIAN);
+		return bytes;
+	}
+
+	@Override
+	public String toString() {
+		return "CuckooFilter[size=" + size() + ", capacity=" + getCapacity() + ']';
+	}
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2012-2017 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.utils;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An {@code ExponentialAverage} computes an exponentially weighted moving average of the added
+ * values.
+ * <p>
+ * Unlike {@link Average}, no value is kept: the weight of a value is divided by two each time
+ * {@code halfLife} values are added after it. The first added value initializes the average.
+ * <p>
+ * {@code ExponentialAverage} is <em>thread-safe</em> and <em>lock-free</em>, concurrent
+ * additions are applied in an unspecified order.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ * @see Average
+ * @see RateMeter
+ */
+public class ExponentialAverage implements Serializable {
+
+	private static final long serialVersionUID = -2903406315843286611L;
+
+	/**
+	 * The bits of the average, {@code NaN} bits when no value has been added.
+	 */
+	private static final long NO_VALUE = Double.doubleToRawLongBits(Double.NaN);
+
+	/**
+	 * The weight of a new value.
+	 */
+	private final double alpha;
+
+	private final AtomicLong average = new AtomicLong(NO_VALUE);
+
+	/**
+	 * Creates a new {@code ExponentialAverage}.
+	 *
+	 * @param halfLife The number of values after which the weight of a value is divided by two.
+	 * @throws IllegalArgumentException if {@code halfLife} is not strictly positive.
+	 */
+	public ExponentialAverage(double halfLife) {
+		if (!(halfLife > 0.0)) {
+			throw new IllegalArgumentException("halfLife must be positive.");
+		}// else
+		alpha = 1.0 - Math.pow(2.0, -1.0 / halfLife);
+	}
+
+	/**
+	 * Returns the average of the values.
+	 *
+	 * @return the average of the values, {@code 0} if no value has been added.
+	 */
+	public double get() {
+		final long bits = average.get();
+		return bits == NO_VALUE ? 0.0 : Double.longBitsToDouble(bits);
+	}
+
+	/**
+	 * Adds a new value in this {@code ExponentialAverage}.
+	 *
+	 * @param value The value to add.
+	 */
+	public void add(double value) {
+		long bits;
+		double newAverage;
+		do {
+			bits = average.get();
+			if (bits == NO_VALUE) {
+				newAverage = value;
+			} else {
+				final double current = Double.longBitsToDouble(bits);
+				newAverage = current + alpha * (value - current);
+			}
+		} while (!average.compareAndSet(bits, Double.doubleToRawLongBits(newAverage)));
+	}
+
+	/**
+	 * Reset this {@code ExponentialAverage}, the next added value will initialize the average.
+	 */
+	public void reset() {
+		average.set(NO_VALUE);
+	}
+
+	@Override
+	public String toString() {
+		return String.valueOf(get());
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2012-2017 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.utils;
+
+/**
+ * A {@code GearHash} is a <em>rolling hash</em>: the hash of the last bytes rolled in, updated
+ * in {@code O(1)} for each new byte.
+ * <p>
+ * Each byte is mapped to a random 64 bits value and {@code hash = (hash << 1) + value}, so that
+ * the bytes rolled in more than 64 bytes ago no longer have any effect. The high bits depend on
+ * the most bytes and are the best mixed.
+ * <p>
+ * The random values are generated from a fixed seed and never change, the hashes being stable
+ * between executions (which is required to find the same chunk boundaries, see
+ * {@link ContentChunker}).
+ * <p>
+ * {@code GearHash} is <em>not thread-safe</em>.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ * @see ContentChunker
+ */
+public final class GearHash {
+
+	/**
+	 * The number of bytes having an effect on the hash.
+	 */
+	public static final int WINDOW = 64;
+
+	/**
+	 * The random value of each byte.
+	 */
+	static final long[] TABLE = new long[256];
+
+	static {
+		// SplitMix64
+		long state = 0x636F646573746F72L;
+		for (int i = 0; i < TABLE.length; i++) {
+			long z = state += 0x9E3779B97F4A7C15L;
+			z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+			z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+			TABLE[i] = z ^ (z >>> 31);
+		}
+	}
+
+	private long hash;
+
+	/**
+	 * Rolls the given byte in the hash.
+	 *
+	 * @param b The new byte.
+	 * @return the new hash.
+	 */
+	public long roll(byte b) {
+		return hash = (hash << 1) + TABLE[b & 0xFF];
+	}
+
+	/**
+	 * Rolls {@code length} bytes of {@code src} from {@code offset} in the hash.
+	 *
+	 * @param src The source array.
+	 * @param offset The index of the first byte to roll in.
+	 * @param length The number of bytes to roll in.
+	 * @return the new hash.
+	 * @throws IndexOutOfBoundsException if the range is out of the array's bounds.
+	 */
+	public long roll(byte[] src, int offset, int length) {
+		Bytes.checkRange(src.length, offset, length);
+		long h = hash;
+		for (int i = offset, end = offset + length; i < end; i++) {
+			h = (h << 1) + TABLE[src[i] & 0xFF];
+		}
+		return hash = h;
+	}
+
+	/**
+	 * Returns the current hash.
+	 *
+	 * @return the current hash.
+	 */
+	public long get() {
+		return hash;
+	}
+
+	/**
+	 * Resets the hash to {@code 0}, forgetting all the bytes rolled in.
+	 */
+	public void reset() {
+		hash = 0L;
+	}
+
+	@Override
+	public String toString() {
+		return Long.toHexString(hash);
+	}
+}
@@ -11,11 +11,30 @@
  */
 package org.codestorming.utils;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.zip.Checksum;
 
 /**
  * Utility class with hashing methods.
+ * <p>
+ * The digests are reused through the {@link Hasher#shared(String) shared} hashers. Streams,
+ * channels and files are hashed with one pass over their content whatever the number of
+ * algorithms.
+ * <p>
+ * For hash tables, partitioning or cache keys, the non-cryptographic hashes
+ * ({@link #xxHash64(byte[], int, int, long) xxHash64}, {@link #murmur3_64(byte[], int, int, int)
+ * MurmurHash3}, {@link #crc32c(byte[], int, int) CRC32C}) are many times faster than the digests
+ * and do not allocate.
  * 
  * @author Thaedrik [thaedrik@codestorming.org]
  */
@@ -30,8 +49,7 @@ public class Hash {
 	 *         implementation for the MD5 algorithm.
 	 */
 	public static byte[] md5(byte[] toHash) throws NoSuchAlgorithmException {
-		MessageDigest md5Digest = MessageDigest.getInstance("MD5");
-		return md5Digest.digest(toHash);
+		return Hasher.shared("MD5").hash(toHash);
 	}
 
 	/**
@@ -43,8 +61,7 @@ public class Hash {
 	 *         implementation for the SHA1 algorithm.
 	 */
 	public static byte[] sha1(byte[] toHash) throws NoSuchAlgorithmException {
-		MessageDigest sha1Digest = MessageDigest.getInstance("SHA-1");
-		return sha1Digest.digest(toHash);
+		return Hasher.shared("SHA-1").hash(toHash);
 	}
 
 	/**
@@ -56,8 +73,660 @@ public class Hash {
 	 *         implementation for the SHA256 algorithm.
 	 */
 	public static byte[] sha256(byte[] toHash) throws NoSuchAlgorithmException {
-		MessageDigest sha256Digest = MessageDigest.getInstance("SHA-256");
-		return sha256Digest.digest(toHash);
+		return Hasher.shared("SHA-256").hash(toHash);
+	}
+
+	/**
+	 * The size of the buffers used to read streams and channels.
+	 */
+	private static final int BUFFER_SIZE = 256 * 1024;
+
+	/**
+	 * The size from which files are memory-mapped instead of read.
+	 */
+	private static final long MAP_THRESHOLD = 64L * 1024 * 1024;
+
+	/**
+	 * The maximum size of a memory-mapped region.
+	 */
+	private static final long MAP_REGION = 1024L * 1024 * 1024;
+
+	private static final ThreadLocal<byte[]> ARRAYS = new ThreadLocal<byte[]>() {
+		@Override
+		protected byte[] initialValue() {
+			return new byte[BUFFER_SIZE];
+		}
+	};
+
+	private static final ThreadLocal<ByteBuffer> DIRECT_BUFFERS = new ThreadLocal<ByteBuffer>() {
+		@Override
+		protected ByteBuffer initialValue() {
+			return ByteBuffer.allocateDirect(BUFFER_SIZE);
+		}
+	};
+
+	/**
+	 * Computes the digest of the remaining content of the given stream, which is not closed.
+	 *
+	 * @param in The stream to hash.
+	 * @param algorithm The name of the digest algorithm, e.g. {@code "SHA-256"}.
+	 * @return the digest of the stream's content.
+	 * @throws NoSuchAlgorithmException if no Provider supports a MessageDigestSpi
+	 *         implementation for the given algorithm.
+	 * @throws IOException if an I/O error occurs while reading the stream.
+	 */
+	public static byte[] digest(InputStream in, String algorithm) throws NoSuchAlgorithmException, IOException {
+		return digests(in, algorithm)[0];
+	}
+
+	/**
+	 * Computes the digests of the remaining content of the given stream with each of the given
+	 * algorithms, in one pass. The stream is not closed.
+	 *
+	 * @param in The stream to hash.
+	 * @param algorithms The names of the digest algorithms.
+	 * @return the digests of the stream's content, in the order of the algorithms.
+	 * @throws NoSuchAlgorithmException if no Provider supports a MessageDigestSpi
+	 *         implementation for one of the algorithms.
+	 * @throws IOException if an I/O error occurs while reading the stream.
+	 */
+	public static byte[][] digests(InputStream in, String... algorithms)
+			throws NoSuchAlgorithmException, IOException {
+		final Hasher[] hashers = hashers(algorithms);
+		final MessageDigest[] digests = acquire(hashers);
+		try {
+			final byte[] buffer = ARRAYS.get();
+			int read;
+			while ((read = in.read(buffer)) >= 0) {
+				for (MessageDigest digest : digests) {
+					digest.update(buffer, 0, read);
+				}
+			}
+			return complete(digests);
+		} finally {
+			release(hashers, digests);
+		}
+	}
+
+	/**
+	 * Computes the digest of the remaining content of the given channel, which is not closed.
+	 *
+	 * @param channel The blocking channel to hash.
+	 * @param algorithm The name of the digest algorithm, e.g. {@code "SHA-256"}.
+	 * @return the digest of the channel's content.
+	 * @throws NoSuchAlgorithmException if no Provider supports a MessageDigestSpi
+	 *         implementation for the given algorithm.
+	 * @throws IOException if an I/O error occurs while reading the channel.
+	 */
+	public static byte[] digest(ReadableByteChannel channel, String algorithm)
+			throws NoSuchAlgorithmException, IOException {
+		return digests(channel, algorithm)[0];
+	}
+
+	/**
+	 * Computes the digests of the remaining content of the given channel with each of the given
+	 * algorithms, in one pass. The channel is read into a direct buffer reused by the thread, and
+	 * is not closed.
+	 *
+	 * @param channel The blocking channel to hash.
+	 * @param algorithms The names of the digest algorithms.
+	 * @return the digests of the channel's content, in the order of the algorithms.
+	 * @throws NoSuchAlgorithmException if no Provider supports a MessageDigestSpi
+	 *         implementation for one of the algorithms.
+	 * @throws IOException if an I/O error occurs while reading the channel.
+	 */
+	public static byte[][] digests(ReadableByteChannel channel, String... algorithms)
+			throws NoSuchAlgorithmException, IOException {
+		final Hasher[] hashers = hashers(algorithms);
+		final MessageDigest[] digests = acquire(hashers);
+		try {
+			final ByteBuffer buffer = DIRECT_BUFFERS.get();
+			buffer.clear();
+			while (channel.read(buffer) >= 0) {
+				buffer.flip();
+				update(digests, buffer);
+				buffer.clear();
+			}
+			return complete(digests);
+		} finally {
+			release(hashers, digests);
+		}
+	}
+
+	/**
+	 * Computes the digest of the given file.
+	 *
+	 * @param file The file to hash.
+	 * @param algorithm The name of the digest algorithm, e.g. {@code "SHA-256"}.
+	 * @return the digest of the file.
+	 * @throws NoSuchAlgorithmException if no Provider supports a MessageDigestSpi
+	 *         implementation for the given algorithm.
+	 * @throws IOException if an I/O error occurs while reading the file.
+	 */
+	public static byte[] digest(Path file, String algorithm) throws NoSuchAlgorithmException, IOException {
+		return digests(file, algorithm)[0];
+	}
+
+	/**
+	 * Computes the digests of the given file with each of the given algorithms, in one pass.
+	 * <p>
+	 * Small files are read into a direct buffer reused by the thread, large files are
+	 * memory-mapped by regions.
+	 *
+	 * @param file The file to hash.
+	 * @param algorithms The names of the digest algorithms.
+	 * @return the digests of the file, in the order of the algorithms.
+	 * @throws NoSuchAlgorithmException if no Provider supports a MessageDigestSpi
+	 *         implementation for one of the algorithms.
+	 * @throws IOException if an I/O error occurs while reading the file.
+	 */
+	public static byte[][] digests(Path file, String... algorithms) throws NoSuchAlgorithmException, IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			final long size = channel.size();
+			if (size < MAP_THRESHOLD) {
+				return digests(channel, algorithms);
+			}// else
+			final Hasher[] hashers = hashers(algorithms);
+			final MessageDigest[] digests = acquire(hashers);
+			try {
+				for (long position = 0; position < size; position += MAP_REGION) {
+					final MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position,
+							Math.min(MAP_REGION, size - position));
+					update(digests, region);
+				}
+				return complete(digests);
+			} finally {
+				release(hashers, digests);
+			}
+		}
+	}
+
+	private static final long XXH_PRIME1 = 0x9E3779B185EBCA87L;
+
+	private static final long XXH_PRIME2 = 0xC2B2AE3D27D4EB4FL;
+
+	private static final long XXH_PRIME3 = 0x165667B19E3779F9L;
+
+	private static final long XXH_PRIME4 = 0x85EBCA77C2B2AE63L;
+
+	private static final long XXH_PRIME5 = 0x27D4EB2F165667C5L;
+
+	private static final long MURMUR_C1 = 0x87C37B91114253D5L;
+
+	private static final long MURMUR_C2 = 0x4CF5AD432745937FL;
+
+	/**
+	 * Creates the {@code java.util.zip.CRC32C} checksums when the JDK provides them (Java 9+),
+	 * {@code null} otherwise.
+	 */
+	private static final ThreadLocal<Checksum> JDK_CRC32C = jdkCrc32c();
+
+	/**
+	 * Computes the <em>xxHash64</em> of the given bytes, a fast non-cryptographic hash.
+	 *
+	 * @param src The bytes to hash.
+	 * @param seed The seed.
+	 * @return the xxHash64 of the bytes.
+	 */
+	public static long xxHash64(byte[] src, long seed) {
+		return xxHash64(src, 0, src.length, seed);
+	}
+
+	/**
+	 * Computes the <em>xxHash64</em> of {@code length} bytes of {@code src} from {@code offset}.
+	 *
+	 * @param src The source array.
+	 * @param offset The index of the first byte to hash.
+	 * @param length The number of bytes to hash.
+	 * @param seed The seed.
+	 * @return the xxHash64 of the bytes.
+	 * @throws IndexOutOfBoundsException if the range is out of the array's bounds.
+	 */
+	public static long xxHash64(byte[] src, int offset, int length, long seed) {
+		Bytes.checkRange(src.length, offset, length);
+		return xxHash64(src, null, offset, length, seed);
+	}
+
+	/**
+	 * Computes the <em>xxHash64</em> of the remaining bytes of {@code src}, without modifying its
+	 * position.
+	 *
+	 * @param src The source buffer.
+	 * @param seed The seed.
+	 * @return the xxHash64 of the remaining bytes.
+	 */
+	public static long xxHash64(ByteBuffer src, long seed) {
+		if (src.hasArray()) {
+			return xxHash64(src.array(), null, src.arrayOffset() + src.position(), src.remaining(), seed);
+		}// else
+		return xxHash64(null, src, src.position(), src.remaining(), seed);
+	}
+
+	/**
+	 * Computes the <em>xxHash64</em> of the eight bytes of the given long integer in
+	 * little-endian.
+	 *
+	 * @param value The long integer to hash.
+	 * @param seed The seed.
+	 * @return the xxHash64 of the long integer.
+	 */
+	public static long xxHash64(long value, long seed) {
+		long h = seed + XXH_PRIME5 + 8;
+		h ^= xxRound(0, value);
+		h = Long.rotateLeft(h, 27) * XXH_PRIME1 + XXH_PRIME4;
+		return xxAvalanche(h);
+	}
+
+	/**
+	 * Reads either from the array or the buffer, the test being hoisted out of the loops.
+	 */
+	private static long xxHash64(byte[] array, ByteBuffer buffer, int offset, int length, long seed) {
+		final int end = offset + length;
+		int i = offset;
+		long h;
+		if (length >= 32) {
+			long v1 = seed + XXH_PRIME1 + XXH_PRIME2;
+			long v2 = seed + XXH_PRIME2;
+			long v3 = seed;
+			long v4 = seed - XXH_PRIME1;
+			for (final int limit = end - 32; i <= limit; i += 32) {
+				v1 = xxRound(v1, readLongLE(array, buffer, i));
+				v2 = xxRound(v2, readLongLE(array, buffer, i + 8));
+				v3 = xxRound(v3, readLongLE(array, buffer, i + 16));
+				v4 = xxRound(v4, readLongLE(array, buffer, i + 24));
+			}
+			h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+			h = xxMerge(h, v1);
+			h = xxMerge(h, v2);
+			h = xxMerge(h, v3);
+			h = xxMerge(h, v4);
+		} else {
+			h = seed + XXH_PRIME5;
+		}
+		h += length;
+		for (; i <= end - 8; i += 8) {
+			h ^= xxRound(0, readLongLE(array, buffer, i));
+			h = Long.rotateLeft(h, 27) * XXH_PRIME1 + XXH_PRIME4;
+		}
+		if (i <= end - 4) {
+			h ^= (readIntLE(array, buffer, i) & 0xFFFFFFFFL) * XXH_PRIME1;
+			h = Long.rotateLeft(h, 23) * XXH_PRIME2 + XXH_PRIME3;
+			i += 4;
+		}
+		for (; i < end; i++) {
+			h ^= (readByte(array, buffer, i) & 0xFFL) * XXH_PRIME5;
+			h = Long.rotateLeft(h, 11) * XXH_PRIME1;
+		}
+		return xxAvalanche(h);
+	}
+
+	private static long xxRound(long acc, long input) {
+		return Long.rotateLeft(acc + input * XXH_PRIME2, 31) * XXH_PRIME1;
+	}
+
+	private static long xxMerge(long acc, long value) {
+		return (acc ^ xxRound(0, value)) * XXH_PRIME1 + XXH_PRIME4;
+	}
+
+	private static long xxAvalanche(long hash) {
+		long h = hash;
+		h ^= h >>> 33;
+		h *= XXH_PRIME2;
+		h ^= h >>> 29;
+		h *= XXH_PRIME3;
+		return h ^ (h >>> 32);
+	}
+
+	/**
+	 * Computes the first 64 bits of the <em>MurmurHash3</em> (x64, 128 bits) of {@code length}
+	 * bytes of {@code src} from {@code offset}, a fast non-cryptographic hash.
+	 *
+	 * @param src The source array.
+	 * @param offset The index of the first byte to hash.
+	 * @param length The number of bytes to hash.
+	 * @param seed The seed.
+	 * @return the first 64 bits of the MurmurHash3 of the bytes.
+	 * @throws IndexOutOfBoundsException if the range is out of the array's bounds.
+	 */
+	public static long murmur3_64(byte[] src, int offset, int length, int seed) {
+		Bytes.checkRange(src.length, offset, length);
+		return murmur3(src, null, offset, length, seed, null, 0);
+	}
+
+	/**
+	 * Computes the first 64 bits of the <em>MurmurHash3</em> (x64, 128 bits) of the remaining
+	 * bytes of {@code src}, without modifying its position.
+	 *
+	 * @param src The source buffer.
+	 * @param seed The seed.
+	 * @return the first 64 bits of the MurmurHash3 of the remaining bytes.
+	 */
+	public static long murmur3_64(ByteBuffer src, int seed) {
+		if (src.hasArray()) {
+			return murmur3(src.array(), null, src.arrayOffset() + src.position(), src.remaining(), seed, null, 0);
+		}// else
+		return murmur3(null, src, src.position(), src.remaining(), seed, null, 0);
+	}
+
+	/**
+	 * Computes the first 64 bits of the <em>MurmurHash3</em> (x64, 128 bits) of the eight bytes of
+	 * the given long integer in little-endian.
+	 *
+	 * @param value The long integer to hash.
+	 * @param seed The seed.
+	 * @return the first 64 bits of the MurmurHash3 of the long integer.
+	 */
+	public static long murmur3_64(long value, int seed) {
+		long h1 = seed & 0xFFFFFFFFL;
+		long h2 = h1;
+		h1 ^= Long.rotateLeft(value * MURMUR_C1, 31) * MURMUR_C2;
+		h1 ^= 8;
+		h2 ^= 8;
+		h1 += h2;
+		h2 += h1;
+		h1 = fmix(h1);
+		h2 = fmix(h2);
+		return h1 + h2;
+	}
+
+	/**
+	 * Computes the <em>MurmurHash3</em> (x64, 128 bits) of {@code length} bytes of {@code src}
+	 * from {@code offset} into {@code dst} at {@code dstOffset}, as the two 64 bits halves in
+	 * little-endian.
+	 *
+	 * @param src The source array.
+	 * @param offset The index of the first byte to hash.
+	 * @param length The number of bytes to hash.
+	 * @param seed The seed.
+	 * @param dst The destination array.
+	 * @param dstOffset The index of the first byte of the hash in {@code dst}.
+	 * @return the index following the last byte of the hash.
+	 * @throws IndexOutOfBoundsException if a range is out of an array's bounds.
+	 */
+	public static int murmur3_128(byte[] src, int offset, int length, int seed, byte[] dst, int dstOffset) {
+		Bytes.checkRange(src.length, offset, length);
+		Bytes.checkRange(dst.length, dstOffset, 16);
+		murmur3(src, null, offset, length, seed, dst, dstOffset);
+		return dstOffset + 16;
+	}
+
+	/**
+	 * Computes the <em>MurmurHash3</em> (x64, 128 bits) of the remaining bytes of {@code src},
+	 * without modifying its position, into {@code dst} at {@code dstOffset}.
+	 *
+	 * @param src The source buffer.
+	 * @param seed The seed.
+	 * @param dst The destination array.
+	 * @param dstOffset The index of the first byte of the hash in {@code dst}.
+	 * @return the index following the last byte of the hash.
+	 * @throws IndexOutOfBoundsException if the hash does not fit in {@code dst} from
+	 *         {@code dstOffset}.
+	 * @see #murmur3_128(byte[], int, int, int, byte[], int)
+	 */
+	public static int murmur3_128(ByteBuffer src, int seed, byte[] dst, int dstOffset) {
+		Bytes.checkRange(dst.length, dstOffset, 16);
+		if (src.hasArray()) {
+			murmur3(src.array(), null, src.arrayOffset() + src.position(), src.remaining(), seed, dst, dstOffset);
+		} else {
+			murmur3(null, src, src.position(), src.remaining(), seed, dst, dstOffset);
+		}
+		return dstOffset + 16;
+	}
+
+	/**
+	 * Computes the MurmurHash3, writing the 128 bits into {@code dst} if not {@code null}.
+	 *
+	 * @return the first 64 bits.
+	 */
+	private static long murmur3(byte[] array, ByteBuffer buffer, int offset, int length, int seed, byte[] dst,
+			int dstOffset) {
+		long h1 = seed & 0xFFFFFFFFL;
+		long h2 = h1;
+		final int end = offset + length;
+		int i = offset;
+		for (final int limit = end - 16; i <= limit; i += 16) {
+			final long k1 = readLongLE(array, buffer, i);
+			final long k2 = readLongLE(array, buffer, i + 8);
+			h1 ^= Long.rotateLeft(k1 * MURMUR_C1, 31) * MURMUR_C2;
+			h1 = (Long.rotateLeft(h1, 27) + h2) * 5 + 0x52DCE729;
+			h2 ^= Long.rotateLeft(k2 * MURMUR_C2, 33) * MURMUR_C1;
+			h2 = (Long.rotateLeft(h2, 31) + h1) * 5 + 0x38495AB5;
+		}
+		final int remaining = end - i;
+		if (remaining > 0) {
+			long k1 = 0L;
+			long k2 = 0L;
+			for (int j = remaining - 1; j >= 8; j--) {
+				k2 = (k2 << 8) | (readByte(array, buffer, i + j) & 0xFFL);
+			}
+			for (int j = Math.min(remaining, 8) - 1; j >= 0; j--) {
+				k1 = (k1 << 8) | (readByte(array, buffer, i + j) & 0xFFL);
+			}
+			if (remaining > 8) {
+				h2 ^= Long.rotateLeft(k2 * MURMUR_C2, 33) * MURMUR_C1;
+			}
+			h1 ^= Long.rotateLeft(k1 * MURMUR_C1, 31) * MURMUR_C2;
+		}
+		h1 ^= length;
+		h2 ^= length;
+		h1 += h2;
+		h2 += h1;
+		h1 = fmix(h1);
+		h2 = fmix(h2);
+		h1 += h2;
+		h2 += h1;
+		if (dst != null) {
+			Bytes.putLong(dst, dstOffset, h1, ByteOrder.LITTLE_ENDIAN);
+			Bytes.putLong(dst, dstOffset + 8, h2, ByteOrder.LITTLE_ENDIAN);
+		}
+		return h1;
+	}
+
+	private static long fmix(long k) {
+		long h = k;
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		return h ^ (h >>> 33);
+	}
+
+	/**
+	 * Computes the <em>CRC32C</em> (Castagnoli) checksum of {@code length} bytes of {@code src}
+	 * from {@code offset}.
+	 * <p>
+	 * The {@code java.util.zip.CRC32C} of the JDK, using the dedicated instructions of the
+	 * processor, is used when available (Java 9+).
+	 *
+	 * @param src The source array.
+	 * @param offset The index of the first byte to checksum.
+	 * @param length The number of bytes to checksum.
+	 * @return the CRC32C of the bytes.
+	 * @throws IndexOutOfBoundsException if the range is out of the array's bounds.
+	 */
+	public static int crc32c(byte[] src, int offset, int length) {
+		Bytes.checkRange(src.length, offset, length);
+		if (JDK_CRC32C != null) {
+			final Checksum checksum = JDK_CRC32C.get();
+			checksum.reset();
+			checksum.update(src, offset, length);
+			return (int) checksum.getValue();
+		}// else
+		return ~Crc32c.update(~0, src, null, offset, length);
+	}
+
+	/**
+	 * Computes the <em>CRC32C</em> (Castagnoli) checksum of the remaining bytes of {@code src},
+	 * without modifying its position.
+	 *
+	 * @param src The source buffer.
+	 * @return the CRC32C of the remaining bytes.
+	 * @see #crc32c(byte[], int, int)
+	 */
+	public static int crc32c(ByteBuffer src) {
+		if (src.hasArray()) {
+			return crc32c(src.array(), src.arrayOffset() + src.position(), src.remaining());
+		}// else
+		if (JDK_CRC32C == null) {
+			return ~Crc32c.update(~0, null, src, src.position(), src.remaining());
+		}// else
+		// The Java 8 Checksum interface only accepts arrays
+		final Checksum checksum = JDK_CRC32C.get();
+		checksum.reset();
+		final byte[] chunk = Crc32c.CHUNKS.get();
+		final ByteBuffer view = src.duplicate();
+		while (view.hasRemaining()) {
+			final int length = Math.min(chunk.length, view.remaining());
+			view.get(chunk, 0, length);
+			checksum.update(chunk, 0, length);
+		}
+		return (int) checksum.getValue();
+	}
+
+	private static ThreadLocal<Checksum> jdkCrc32c() {
+		final Class<? extends Checksum> type;
+		try {
+			type = Class.forName("java.util.zip.CRC32C").asSubclass(Checksum.class);
+		} catch (ClassNotFoundException e) {
+			return null;
+		}
+		return new ThreadLocal<Checksum>() {
+			@Override
+			protected Checksum initialValue() {
+				try {
+					return type.newInstance();
+				} catch (InstantiationException | IllegalAccessException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		};
+	}
+
+	private static long readLongLE(byte[] array, ByteBuffer buffer, int index) {
+		if (array != null) {
+			return (array[index] & 0xFFL)
+					| (array[index + 1] & 0xFFL) << 8
+					| (array[index + 2] & 0xFFL) << 16
+					| (array[index + 3] & 0xFFL) << 24
+					| (array[index + 4] & 0xFFL) << 32
+					| (array[index + 5] & 0xFFL) << 40
+					| (array[index + 6] & 0xFFL) << 48
+					| (array[index + 7] & 0xFFL) << 56;
+		}// else
+		final long value = buffer.getLong(index);
+		return buffer.order() == ByteOrder.LITTLE_ENDIAN ? value : Long.reverseBytes(value);
+	}
+
+	private static int readIntLE(byte[] array, ByteBuffer buffer, int index) {
+		if (array != null) {
+			return (array[index] & 0xFF)
+					| (array[index + 1] & 0xFF) << 8
+					| (array[index + 2] & 0xFF) << 16
+					| (array[index + 3] & 0xFF) << 24;
+		}// else
+		final int value = buffer.getInt(index);
+		return buffer.order() == ByteOrder.LITTLE_ENDIAN ? value : Integer.reverseBytes(value);
+	}
+
+	private static byte readByte(byte[] array, ByteBuffer buffer, int index) {
+		return array != null ? array[index] : buffer.get(index);
+	}
+
+	/**
+	 * The pure Java CRC32C, used before Java 9 (slicing-by-8).
+	 */
+	static final class Crc32c {
+
+		private static final int POLYNOMIAL = 0x82F63B78;
+
+		private static final int[][] TABLES = new int[8][256];
+
+		static final ThreadLocal<byte[]> CHUNKS = new ThreadLocal<byte[]>() {
+			@Override
+			protected byte[] initialValue() {
+				return new byte[8192];
+			}
+		};
+
+		static {
+			for (int n = 0; n < 256; n++) {
+				int crc = n;
+				for (int k = 0; k < 8; k++) {
+					crc = (crc >>> 1) ^ (POLYNOMIAL & -(crc & 1));
+				}
+				TABLES[0][n] = crc;
+			}
+			for (int n = 0; n < 256; n++) {
+				for (int t = 1; t < 8; t++) {
+					final int previous = TABLES[t - 1][n];
+					TABLES[t][n] = (previous >>> 8) ^ TABLES[0][previous & 0xFF];
+				}
+			}
+		}
+
+		static int update(int crc, byte[] array, ByteBuffer buffer, int offset, int length) {
+			final int[] t0 = TABLES[0], t1 = TABLES[1], t2 = TABLES[2], t3 = TABLES[3];
+			final int[] t4 = TABLES[4], t5 = TABLES[5], t6 = TABLES[6], t7 = TABLES[7];
+			final int end = offset + length;
+			int i = offset;
+			int c = crc;
+			for (final int limit = end - 8; i <= limit; i += 8) {
+				final long word = readLongLE(array, buffer, i);
+				final int low = c ^ (int) word;
+				final int high = (int) (word >>> 32);
+				c = t7[low & 0xFF] ^ t6[(low >>> 8) & 0xFF] ^ t5[(low >>> 16) & 0xFF] ^ t4[low >>> 24]
+						^ t3[high & 0xFF] ^ t2[(high >>> 8) & 0xFF] ^ t1[(high >>> 16) & 0xFF] ^ t0[high >>> 24];
+			}
+			for (; i < end; i++) {
+				c = (c >>> 8) ^ t0[(c ^ readByte(array, buffer, i)) & 0xFF];
+			}
+			return c;
+		}
+	}
+
+	private static Hasher[] hashers(String... algorithms) throws NoSuchAlgorithmException {
+		if (algorithms.length == 0) {
+			throw new IllegalArgumentException("No algorithm.");
+		}// else
+		final Hasher[] hashers = new Hasher[algorithms.length];
+		for (int i = 0; i < algorithms.length; i++) {
+			hashers[i] = Hasher.shared(algorithms[i]);
+		}
+		return hashers;
+	}
+
+	private static MessageDigest[] acquire(Hasher[] hashers) {
+		final MessageDigest[] digests = new MessageDigest[hashers.length];
+		for (int i = 0; i < hashers.length; i++) {
+			digests[i] = hashers[i].acquire();
+		}
+		return digests;
+	}
+
+	private static void release(Hasher[] hashers, MessageDigest[] digests) {
+		for (int i = 0; i < hashers.length; i++) {
+			hashers[i].release(digests[i]);
+		}
+	}
+
+	/**
+	 * Updates the digests with the remaining bytes of the buffer, then sets its position to its
+	 * limit.
+	 */
+	private static void update(MessageDigest[] digests, ByteBuffer buffer) {
+		final int position = buffer.position();
+		for (MessageDigest digest : digests) {
+			buffer.position(position);
+			digest.update(buffer);
+		}
+	}
+
+	private static byte[][] complete(MessageDigest[] digests) {
+		final byte[][] results = new byte[digests.length][];
+		for (int i = 0; i < digests.length; i++) {
+			results[i] = digests[i].digest();
+		}
+		return results;
 	}
 
 	// Suppressing default constructor, ensuring non instantiability
@@ -0,0 +1,314 @@
+/*
+ * Copyright (c) 2012-2017 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.utils;
+
+import java.nio.ByteBuffer;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A {@code Hasher} computes the digests of a specific algorithm, reusing its
+ * {@link MessageDigest} instances instead of looking up the security providers and creating a new
+ * digest for each message.
+ * <p>
+ * The digests are kept either one per thread ({@link #perThread(String)}) or in a bounded pool
+ * shared by all the threads ({@link #pooled(String, int)}), the latter being preferable when many
+ * short-lived threads hash messages. New digests are cloned from a prototype.
+ * <p>
+ * The result can be written into a buffer of the caller, so that hashing a small message does not
+ * allocate.
+ * <p>
+ * {@code Hasher} is <em>thread-safe</em>.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ * @see Hash
+ */
+public final class Hasher {
+
+	private static final ConcurrentMap<String, Hasher> SHARED = new ConcurrentHashMap<>();
+
+	/**
+	 * Returns the {@link #perThread(String) per thread} {@code Hasher} of the given algorithm
+	 * shared by the whole application.
+	 *
+	 * @param algorithm The name of the digest algorithm, e.g. {@code "SHA-256"}.
+	 * @return the shared {@code Hasher} of the given algorithm.
+	 * @throws NoSuchAlgorithmException if no Provider supports a MessageDigestSpi implementation
+	 *         for the given algorithm.
+	 */
+	public static Hasher shared(String algorithm) throws NoSuchAlgorithmException {
+		Hasher hasher = SHARED.get(algorithm);
+		if (hasher == null) {
+			hasher = perThread(algorithm);
+			final Hasher previous = SHARED.putIfAbsent(algorithm, hasher);
+			if (previous != null) {
+				hasher = previous;
+			}
+		}
+		return hasher;
+	}
+
+	/**
+	 * Creates a {@code Hasher} keeping one digest per thread.
+	 *
+	 * @param algorithm The name of the digest algorithm, e.g. {@code "SHA-256"}.
+	 * @return the new {@code Hasher}.
+	 * @throws NoSuchAlgorithmException if no Provider supports a MessageDigestSpi implementation
+	 *         for the given algorithm.
+	 */
+	public static Hasher perThread(String algorithm) throws NoSuchAlgorithmException {
+		return new Hasher(MessageDigest.getInstance(algorithm), 0);
+	}
+
+	/**
+	 * Creates a {@code Hasher} keeping at most {@code maxPooled} idle digests in a pool shared by
+	 * all the threads.
+	 *
+	 * @param algorithm The name of the digest algorithm, e.g. {@code "SHA-256"}.
+	 * @param maxPooled The maximum number of idle digests.
+	 * @return the new {@code Hasher}.
+	 * @throws NoSuchAlgorithmException if no Provider supports a MessageDigestSpi implementation
+	 *         for the given algorithm.
+	 * @throws IllegalArgumentException if {@code maxPooled <= 0}.
+	 */
+	public static Hasher pooled(String algorithm, int maxPooled) throws NoSuchAlgorithmException {
+		if (maxPooled <= 0) {
+			throw new IllegalArgumentException("maxPooled must be positive.");
+		}// else
+		return new Hasher(MessageDigest.getInstance(algorithm), maxPooled);
+	}
+
+	/**
+	 * The digest cloned to create the new ones, never updated.
+	 */
+	private final MessageDigest prototype;
+
+	private final int digestLength;
+
+	/**
+	 * The idle digest of each thread, in a one-element array, {@code null} for a pooled hasher.
+	 */
+	private final ThreadLocal<MessageDigest[]> local;
+
+	/**
+	 * The idle digests, {@code null} for a per thread hasher.
+	 */
+	private final BlockingQueue<MessageDigest> pool;
+
+	private Hasher(MessageDigest prototype, int maxPooled) {
+		this.prototype = prototype;
+		digestLength = prototype.getDigestLength();
+		if (maxPooled == 0) {
+			local = new ThreadLocal<MessageDigest[]>() {
+				@Override
+				protected MessageDigest[] initialValue() {
+					return new MessageDigest[1];
+				}
+			};
+			pool = null;
+		} else {
+			local = null;
+			pool = new ArrayBlockingQueue<>(maxPooled);
+		}
+	}
+
+	/**
+	 * Returns the name of the digest algorithm.
+	 *
+	 * @return the name of the digest algorithm.
+	 */
+	public String getAlgorithm() {
+		return prototype.getAlgorithm();
+	}
+
+	/**
+	 * Returns the number of bytes of the digests.
+	 *
+	 * @return the number of bytes of the digests, {@code 0} if the provider does not tell it.
+	 */
+	public int getDigestLength() {
+		return digestLength;
+	}
+
+	/**
+	 * Computes the digest of the given bytes.
+	 *
+	 * @param src The bytes to hash.
+	 * @return the digest of {@code src}.
+	 */
+	public byte[] hash(byte[] src) {
+		return hash(src, 0, src.length);
+	}
+
+	/**
+	 * Computes the digest of {@code length} bytes of {@code src} from {@code offset}.
+	 *
+	 * @param src The source array.
+	 * @param offset The index of the first byte to hash.
+	 * @param length The number of bytes to hash.
+	 * @return the digest of the bytes.
+	 * @throws IndexOutOfBoundsException if the range is out of the array's bounds.
+	 */
+	public byte[] hash(byte[] src, int offset, int length) {
+		Bytes.checkRange(src.length, offset, length);
+		final MessageDigest digest = acquire();
+		try {
+			digest.update(src, offset, length);
+			return digest.digest();
+		} finally {
+			release(digest);
+		}
+	}
+
+	/**
+	 * Computes the digest of the remaining bytes of {@code src}, then sets its position to its
+	 * limit.
+	 *
+	 * @param src The source buffer.
+	 * @return the digest of the remaining bytes.
+	 */
+	public byte[] hash(ByteBuffer src) {
+		final MessageDigest digest = acquire();
+		try {
+			digest.update(src);
+			return digest.digest();
+		} finally {
+			release(digest);
+		}
+	}
+
+	/**
+	 * Computes the digest of {@code length} bytes of {@code src} from {@code offset} into
+	 * {@code dst} at {@code dstOffset}.
+	 *
+	 * @param src The source array.
+	 * @param offset The index of the first byte to hash.
+	 * @param length The number of bytes to hash.
+	 * @param dst The destination array.
+	 * @param dstOffset The index of the first byte of the digest in {@code dst}.
+	 * @return the index following the last byte of the digest.
+	 * @throws IndexOutOfBoundsException if a range is out of an array's bounds.
+	 */
+	public int hash(byte[] src, int offset, int length, byte[] dst, int dstOffset) {
+		Bytes.checkRange(src.length, offset, length);
+		final MessageDigest digest = acquire();
+		try {
+			digest.update(src, offset, length);
+			return digestInto(digest, dst, dstOffset);
+		} finally {
+			release(digest);
+		}
+	}
+
+	/**
+	 * Computes the digest of the remaining bytes of {@code src} into {@code dst} at
+	 * {@code dstOffset}, then sets the position of {@code src} to its limit.
+	 *
+	 * @param src The source buffer.
+	 * @param dst The destination array.
+	 * @param dstOffset The index of the first byte of the digest in {@code dst}.
+	 * @return the index following the last byte of the digest.
+	 * @throws IndexOutOfBoundsException if the digest does not fit in {@code dst} from
+	 *         {@code dstOffset}.
+	 */
+	public int hash(ByteBuffer src, byte[] dst, int dstOffset) {
+		final MessageDigest digest = acquire();
+		try {
+			digest.update(src);
+			return digestInto(digest, dst, dstOffset);
+		} finally {
+			release(digest);
+		}
+	}
+
+	/**
+	 * Completes the given digest into {@code dst} at {@code dstOffset}.
+	 *
+	 * @return the index following the last byte of the digest.
+	 */
+	static int digestInto(MessageDigest digest, byte[] dst, int dstOffset) {
+		final int length = digest.getDigestLength();
+		if (length == 0) {
+			// Unknown length, the provider may not support digesting into a buffer
+			final byte[] result = digest.digest();
+			Bytes.checkRange(dst.length, dstOffset, result.length);
+			System.arraycopy(result, 0, dst, dstOffset, result.length);
+			return dstOffset + result.length;
+		}// else
+		Bytes.checkRange(dst.length, dstOffset, length);
+		try {
+			return dstOffset + digest.digest(dst, dstOffset, length);
+		} catch (DigestException e) {
+			// Cannot happen, the range has been checked
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Takes an idle digest of this hasher, or creates a new one.
+	 * <p>
+	 * The digest must be given back with {@link #release(MessageDigest)}.
+	 *
+	 * @return a reset digest.
+	 */
+	MessageDigest acquire() {
+		MessageDigest digest;
+		if (local != null) {
+			final MessageDigest[] idle = local.get();
+			digest = idle[0];
+			idle[0] = null;
+		} else {
+			digest = pool.poll();
+		}
+		return digest != null ? digest : newDigest();
+	}
+
+	/**
+	 * Gives back a digest taken with {@link #acquire()}.
+	 *
+	 * @param digest The digest.
+	 */
+	void release(MessageDigest digest) {
+		digest.reset();
+		if (local != null) {
+			final MessageDigest[] idle = local.get();
+			if (idle[0] == null) {
+				idle[0] = digest;
+			}
+		} else {
+			pool.offer(digest);
+		}
+	}
+
+	private MessageDigest newDigest() {
+		try {
+			return (MessageDigest) prototype.clone();
+		} catch (CloneNotSupportedException e) {
+			try {
+				return MessageDigest.getInstance(prototype.getAlgorithm(), prototype.getProvider());
+			} catch (NoSuchAlgorithmException e1) {
+				// Cannot happen, the provider created the prototype
+				throw new IllegalStateException(e1);
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Hasher[" + getAlgorithm() + (pool != null ? ", pooled]" : ", per thread]");
+	}
+}
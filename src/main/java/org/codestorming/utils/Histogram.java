@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2012-2017 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.utils;
+
+import java.io.Serializable;
+
+/**
+ * A {@code Histogram} counts values in logarithmic buckets in order to estimate their quantiles
+ * (median, 99th percentile, ...) without keeping the values.
+ * <p>
+ * Each power of two between {@code lowest} and {@code highest} is divided in
+ * {@code 2^precisionBits} buckets of equal width, so that the relative error of the estimated
+ * quantiles is at most {@code 2^-precisionBits}. The values lower than {@code lowest} are counted
+ * in the first bucket and the values greater than {@code highest} in the last one. The memory
+ * used only depends on these parameters.
+ * <p>
+ * Recording a value is in {@code O(1)}, computing a quantile is in {@code O(buckets)}. Histograms
+ * with the same parameters can be {@link #merge(Histogram) merged}.
+ * <p>
+ * {@code Histogram} is <em>thread-safe</em> and the methods modifying the histogram are
+ * <em>synchronized</em>.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ * @see Average
+ */
+public class Histogram implements Serializable {
+
+	private static final long serialVersionUID = 7716359082367110924L;
+
+	private final double lowest;
+
+	private final double highest;
+
+	private final int precisionBits;
+
+	/**
+	 * The shift giving the bucket of a value from its bits.
+	 */
+	private final int shift;
+
+	/**
+	 * The bucket of {@code lowest} from its bits.
+	 */
+	private final long firstBucket;
+
+	private final long[] counts;
+
+	private long count;
+
+	private double min = Double.POSITIVE_INFINITY;
+
+	private double max = Double.NEGATIVE_INFINITY;
+
+	/**
+	 * Creates a new {@code Histogram}.
+	 *
+	 * @param lowest The lowest value to distinguish, strictly positive.
+	 * @param highest The highest value to distinguish.
+	 * @param precisionBits The number of bits of precision, between {@code 0} and {@code 20}.
+	 * @throws IllegalArgumentException if the parameters are invalid or would need too many
+	 *         buckets.
+	 */
+	public Histogram(double lowest, double highest, int precisionBits) {
+		if (!(lowest > 0.0) || !(highest >= lowest) || Double.isInfinite(highest)) {
+			throw new IllegalArgumentException("Invalid range [" + lowest + ", " + highest + "].");
+		}// else
+		if (precisionBits < 0 || precisionBits > 20) {
+			throw new IllegalArgumentException("precisionBits must be between 0 and 20.");
+		}// else
+		this.lowest = lowest;
+		this.highest = highest;
+		this.precisionBits = precisionBits;
+		shift = 52 - precisionBits;
+		firstBucket = Double.doubleToRawLongBits(lowest) >>> shift;
+		final long buckets = (Double.doubleToRawLongBits(highest) >>> shift) - firstBucket + 1;
+		if (buckets > 1 << 24) {
+			throw new IllegalArgumentException("Too many buckets : " + buckets);
+		}// else
+		counts = new long[(int) buckets];
+	}
+
+	/**
+	 * Records the given value once.
+	 *
+	 * @param value The value to record.
+	 */
+	public void record(double value) {
+		record(value, 1L);
+	}
+
+	/**
+	 * Records the given value {@code times} times.
+	 *
+	 * @param value The value to record.
+	 * @param times The number of times to record the value.
+	 * @throws IllegalArgumentException if {@code value} is {@code NaN} or {@code times < 0}.
+	 */
+	public synchronized void record(double value, long times) {
+		if (Double.isNaN(value) || times < 0) {
+			throw new IllegalArgumentException();
+		}// else
+		counts[bucket(value)] += times;
+		count += times;
+		if (value < min) {
+			min = value;
+		}
+		if (value > max) {
+			max = value;
+		}
+	}
+
+	private int bucket(double value) {
+		if (value <= lowest) {
+			return 0;
+		}// else
+		if (value >= highest) {
+			return counts.length - 1;
+		}// else
+		return (int) ((Double.doubleToRawLongBits(value) >>> shift) - firstBucket);
+	}
+
+	private double lowerBound(int bucket) {
+		return Double.longBitsToDouble((bucket + firstBucket) << shift);
+	}
+
+	/**
+	 * Returns the estimation of the given quantile of the recorded values.
+	 * <p>
+	 * e.g. {@code getQuantile(0.99)} returns the 99th percentile.
+	 *
+	 * @param quantile The quantile, between {@code 0} and {@code 1}.
+	 * @return the estimation of the quantile, {@code 0} if no value was recorded.
+	 * @throws IllegalArgumentException if {@code quantile} is not between {@code 0} and {@code 1}.
+	 */
+	public synchronized double getQuantile(double quantile) {
+		if (!(quantile >= 0.0 && quantile <= 1.0)) {
+			throw new IllegalArgumentException("quantile must be between 0 and 1.");
+		}// else
+		if (count == 0) {
+			return 0.0;
+		}// else
+		final long rank = Math.max(1L, (long) Math.ceil(quantile * count));
+		long seen = 0;
+		int bucket = 0;
+		while (bucket < counts.length - 1) {
+			seen += counts[bucket];
+			if (seen >= rank) {
+				break;
+			}// else
+			bucket++;
+		}
+		// Middle of the bucket, the extreme buckets being bounded by the extreme values
+		final double middle = (lowerBound(bucket) + lowerBound(bucket + 1)) / 2;
+		return Math.min(Math.max(middle, min), max);
+	}
+
+	/**
+	 * Returns the number of recorded values.
+	 *
+	 * @return the number of recorded values.
+	 */
+	public synchronized long getCount() {
+		return count;
+	}
+
+	/**
+	 * Returns the lowest recorded value.
+	 *
+	 * @return the lowest recorded value, {@code 0} if no value was recorded.
+	 */
+	public synchronized double getMin() {
+		return count == 0 ? 0.0 : min;
+	}
+
+	/**
+	 * Returns the highest recorded value.
+	 *
+	 * @return the highest recorded value, {@code 0} if no value was recorded.
+	 */
+	public synchronized double getMax() {
+		return count == 0 ? 0.0 : max;
+	}
+
+	/**
+	 * Adds the values recorded in the given {@code Histogram} to this one.
+	 *
+	 * @param histogram The {@code Histogram} to merge into this one.
+	 * @throws IllegalArgumentException if the given {@code Histogram} does not have the same
+	 *         parameters.
+	 */
+	public void merge(Histogram histogram) {
+		if (histogram.lowest != lowest || histogram.highest != highest
+				|| histogram.precisionBits != precisionBits) {
+			throw new IllegalArgumentException("Histograms with different parameters can't be merged.");
+		}// else
+		final Histogram other = histogram.snapshot();
+		synchronized (this) {
+			for (int i = 0; i < counts.length; i++) {
+				counts[i] += other.counts[i];
+			}
+			count += other.count;
+			min = Math.min(min, other.min);
+			max = Math.max(max, other.max);
+		}
+	}
+
+	/**
+	 * Creates a copy of this {@code Histogram}.
+	 *
+	 * @return a copy of this {@code Histogram}.
+	 */
+	public synchronized Histogram snapshot() {
+		final Histogram copy = new Histogram(lowest, highest, precisionBits);
+		System.arraycopy(counts, 0, copy.counts, 0, counts.length);
+		copy.count = count;
+		copy.min = min;
+		copy.max = max;
+		return copy;
+	}
+
+	/**
+	 * Reset this {@code Histogram} and delete all the previous recorded values.
+	 */
+	public synchronized void reset() {
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = 0;
+		}
+		count = 0;
+		min = Double.POSITIVE_INFINITY;
+		max = Double.NEGATIVE_INFINITY;
+	}
+
+	@Override
+	public String toString() {
+		return "[count=" + getCount() + ", p50=" + getQuantile(0.5) + ", p99=" + getQuantile(0.99) + ", max="
+				+ getMax() + ']';
+	}
+}
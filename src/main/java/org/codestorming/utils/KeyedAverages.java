@@ -0,0 +1,371 @@
+/*
+ * Copyright (c) 2012-2017 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.utils;
+
+import java.util.Arrays;
+
+/**
+ * A {@code KeyedAverages} computes one {@link Average} per {@code long} key, for a large number
+ * of keys.
+ * <p>
+ * Instead of one object per key, the windows of all the keys are stored in shared primitive
+ * arrays, indexed by an open-addressing hash table of the keys. Per key, the memory used is
+ * about {@code 8 * window + 48} bytes.
+ * <p>
+ * The windows of all the keys being stored in a single {@code double[]}, the number of keys times
+ * the window cannot exceed {@code Integer.MAX_VALUE - 8}, e.g. about 2 millions keys for a window
+ * of 1000 values. The hash table being limited to {@code 2^30} slots, filled up to {@code 75%},
+ * there cannot be more than {@code 3 * 2^28} keys whatever the window (see {@link #getMaxKeys()}).
+ * The expected number of keys is checked against these limits at construction, so that they are
+ * not reached by surprise while adding values.
+ * <p>
+ * Like {@link Average}, the sum of each window is maintained with a compensated summation and
+ * recomputed entirely each time the window has been completely replaced.
+ * <p>
+ * {@code KeyedAverages} is <em>thread-safe</em> and its methods are <em>synchronized</em>, the
+ * batched {@link #add(long[], double[])} acquiring the monitor only once.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ * @see Average
+ */
+public class KeyedAverages {
+
+	private static final int MAX_VALUES = Integer.MAX_VALUE - 8;
+
+	/**
+	 * The maximum size of the hash table.
+	 */
+	private static final int MAX_TABLE_SIZE = 1 << 30;
+
+	/**
+	 * The maximum number of keys, for a load factor of at most 0.75 in the largest table.
+	 */
+	private static final int MAX_KEYS = MAX_TABLE_SIZE / 4 * 3;
+
+	private final int window;
+
+	/**
+	 * The hash table of the keys, holding {@code index + 1} of the keys or {@code 0} for the empty
+	 * slots.
+	 */
+	private int[] table;
+
+	/**
+	 * The keys in insertion order.
+	 */
+	private long[] keys;
+
+	/**
+	 * The windows of the keys, {@code window} values per key.
+	 */
+	private double[] values;
+
+	private int[] sizes;
+
+	private int[] olders;
+
+	private double[] sums;
+
+	private double[] compensations;
+
+	/**
+	 * The number of keys.
+	 */
+	private int count;
+
+	/**
+	 * Creates a new {@code KeyedAverages}.
+	 *
+	 * @param window The maximum number of elements on which to do the average of each key.
+	 * @throws IllegalArgumentException if {@code window <= 0} or if not even one key can be stored
+	 *         with such a window.
+	 */
+	public KeyedAverages(int window) {
+		this(window, 0);
+	}
+
+	/**
+	 * Creates a new {@code KeyedAverages}.
+	 *
+	 * @param window The maximum number of elements on which to do the average of each key.
+	 * @param expectedKeys The expected number of keys.
+	 * @throws IllegalArgumentException if {@code window <= 0}, if {@code expectedKeys < 0}, if
+	 *         {@code expectedKeys * window} (at least one key) exceeds
+	 *         {@code Integer.MAX_VALUE - 8}, or if {@code expectedKeys > 3 * 2^28}.
+	 */
+	public KeyedAverages(int window, int expectedKeys) {
+		if (window <= 0 || expectedKeys < 0) {
+			throw new IllegalArgumentException();
+		}// else
+		final int maxKeys = maxKeys(window);
+		if (Math.max(expectedKeys, 1) > maxKeys) {
+			throw new IllegalArgumentException("At most " + maxKeys + " keys for a window of " + window);
+		}// else
+		this.window = window;
+		final int capacity = Math.max(expectedKeys, Math.min(16, maxKeys));
+		table = new int[tableSize(capacity)];
+		allocate(capacity);
+	}
+
+	private static int tableSize(int capacity) {
+		// Load factor of at most 0.5, but in the largest table
+		final long size = (long) Integer.highestOneBit(Math.max(capacity, 8) - 1) << 2;
+		return (int) Math.min(size, MAX_TABLE_SIZE);
+	}
+
+	private static int maxKeys(int window) {
+		return Math.min(MAX_VALUES / window, MAX_KEYS);
+	}
+
+	private void allocate(int capacity) {
+		if ((long) capacity * window > MAX_VALUES) {
+			throw new IllegalStateException("Too many keys for a window of " + window);
+		}// else
+		keys = keys == null ? new long[capacity] : Arrays.copyOf(keys, capacity);
+		values = values == null ? new double[capacity * window] : Arrays.copyOf(values, capacity * window);
+		sizes = sizes == null ? new int[capacity] : Arrays.copyOf(sizes, capacity);
+		olders = olders == null ? new int[capacity] : Arrays.copyOf(olders, capacity);
+		sums = sums == null ? new double[capacity] : Arrays.copyOf(sums, capacity);
+		compensations = compensations == null ? new double[capacity] : Arrays.copyOf(compensations, capacity);
+	}
+
+	/**
+	 * Returns the average of the values of the given key.
+	 *
+	 * @param key The key.
+	 * @return the average of the values of the given key, {@code 0} if no value was added for it.
+	 */
+	public synchronized double get(long key) {
+		final int index = indexOf(key);
+		if (index < 0 || sizes[index] == 0) {
+			return 0.0;
+		}// else
+		return sum(index) / sizes[index];
+	}
+
+	/**
+	 * Creates the summary of the values of the given key.
+	 *
+	 * @param key The key.
+	 * @return the summary of the values of the given key.
+	 */
+	public synchronized AverageSummary summary(long key) {
+		final int index = indexOf(key);
+		if (index < 0) {
+			return new AverageSummary(0, 0.0, 0.0, window);
+		}// else
+		return new AverageSummary(sizes[index], sums[index], compensations[index], window);
+	}
+
+	/**
+	 * Indicates if values were added for the given key.
+	 *
+	 * @param key The key.
+	 * @return {@code true} if values were added for the given key;<br> {@code false} otherwise.
+	 */
+	public synchronized boolean contains(long key) {
+		return indexOf(key) >= 0;
+	}
+
+	/**
+	 * Returns the number of keys.
+	 *
+	 * @return the number of keys.
+	 */
+	public synchronized int size() {
+		return count;
+	}
+
+	/**
+	 * Returns the maximum number of keys for the window of this {@code KeyedAverages}.
+	 *
+	 * @return the maximum number of keys.
+	 */
+	public int getMaxKeys() {
+		return maxKeys(window);
+	}
+
+	/**
+	 * Adds a new value for the given key that will replace its oldest value.
+	 *
+	 * @param key The key.
+	 * @param value The value to add.
+	 * @throws IllegalStateException if the key is new and there are already
+	 *         {@link #getMaxKeys()} keys.
+	 */
+	public synchronized void add(long key, double value) {
+		internalAdd(key, value);
+	}
+
+	/**
+	 * Adds the given values, each value for the key at the same index.
+	 *
+	 * @param keys The keys.
+	 * @param values The values to add.
+	 * @throws IllegalArgumentException if the arrays do not have the same length.
+	 * @throws IllegalStateException if a key is new and there are already {@link #getMaxKeys()}
+	 *         keys, the previous values being added.
+	 */
+	public void add(long[] keys, double[] values) {
+		if (keys.length != values.length) {
+			throw new IllegalArgumentException("keys and values must have the same length.");
+		}// else
+		add(keys, values, 0, keys.length);
+	}
+
+	/**
+	 * Adds {@code length} values from {@code offset}, each value for the key at the same index.
+	 *
+	 * @param keys The keys.
+	 * @param values The values to add.
+	 * @param offset The index of the first key and value to add.
+	 * @param length The number of values to add.
+	 * @throws IndexOutOfBoundsException if the range is out of the arrays' bounds.
+	 * @throws IllegalStateException if a key is new and there are already {@link #getMaxKeys()}
+	 *         keys, the previous values being added.
+	 */
+	public synchronized void add(long[] keys, double[] values, int offset, int length) {
+		if (offset < 0 || length < 0 || offset + length > keys.length || offset + length > values.length) {
+			throw new IndexOutOfBoundsException();
+		}// else
+		for (int i = offset, end = offset + length; i < end; i++) {
+			internalAdd(keys[i], values[i]);
+		}
+	}
+
+	private void internalAdd(long key, double value) {
+		final int index = indexOrInsert(key);
+		final int base = index * window;
+		final int size = sizes[index];
+		if (size < window) {
+			values[base + size] = value;
+			sizes[index] = size + 1;
+			accumulate(index, value);
+		} else {
+			int older = olders[index];
+			final double oldest = values[base + older];
+			values[base + older] = value;
+			if (++older == window) {
+				older = 0;
+			}
+			olders[index] = older;
+			accumulate(index, -oldest);
+			accumulate(index, value);
+			if (older == 0 || Double.isNaN(sums[index]) || Double.isInfinite(sums[index])) {
+				// The window has been replaced, bounds the drift
+				resum(index);
+			}
+		}
+	}
+
+	private void accumulate(int index, double value) {
+		final double sum = sums[index];
+		final double t = sum + value;
+		compensations[index] += AverageSummary.error(sum, value, t);
+		sums[index] = t;
+	}
+
+	private void resum(int index) {
+		sums[index] = 0.0;
+		compensations[index] = 0.0;
+		final int base = index * window;
+		for (int i = 0, size = sizes[index]; i < size; i++) {
+			accumulate(index, values[base + i]);
+		}
+	}
+
+	private double sum(int index) {
+		final double sum = sums[index];
+		// The compensation is meaningless with infinite values
+		return Double.isInfinite(sum) ? sum : sum + compensations[index];
+	}
+
+	/**
+	 * Removes all the keys and their values.
+	 */
+	public synchronized void clear() {
+		Arrays.fill(table, 0);
+		Arrays.fill(sizes, 0, count, 0);
+		Arrays.fill(olders, 0, count, 0);
+		Arrays.fill(sums, 0, count, 0.0);
+		Arrays.fill(compensations, 0, count, 0.0);
+		count = 0;
+	}
+
+	private int indexOf(long key) {
+		final int mask = table.length - 1;
+		for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+			final int entry = table[slot];
+			if (entry == 0) {
+				return -1;
+			}// else
+			if (keys[entry - 1] == key) {
+				return entry - 1;
+			}
+		}
+	}
+
+	private int indexOrInsert(long key) {
+		final int mask = table.length - 1;
+		int slot = hash(key) & mask;
+		for (int entry = table[slot]; entry != 0; entry = table[slot]) {
+			if (keys[entry - 1] == key) {
+				return entry - 1;
+			}// else
+			slot = (slot + 1) & mask;
+		}
+		final int index = count;
+		if (index == keys.length) {
+			final int capacity = (int) Math.min((long) index * 2, maxKeys(window));
+			if (capacity == index) {
+				throw new IllegalStateException("Too many keys for a window of " + window);
+			}// else
+			allocate(capacity);
+		}
+		count++;
+		keys[index] = key;
+		table[slot] = index + 1;
+		if (count * 2 > table.length && table.length < MAX_TABLE_SIZE) {
+			rehash(table.length * 2);
+		}
+		return index;
+	}
+
+	private void rehash(int size) {
+		final int[] newTable = new int[size];
+		final int mask = size - 1;
+		for (int index = 0; index < count; index++) {
+			int slot = hash(keys[index]) & mask;
+			while (newTable[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			newTable[slot] = index + 1;
+		}
+		table = newTable;
+	}
+
+	private static int hash(long key) {
+		// Murmur3 finalizer
+		long h = key;
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		h ^= h >>> 33;
+		return (int) h;
+	}
+
+	@Override
+	public String toString() {
+		return "[keys=" + size() + ", window=" + window + ']';
+	}
+}
@@ -0,0 +1,407 @@
+/*
+ * Copyright (c) 2012-2017 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.utils;
+
+import java.io.Serializable;
+import java.math.BigInteger;
+
+/**
+ * A {@code LongAverage} allows to compute the average, the variance, the minimum and the maximum
+ * of a specific number of {@code long} values, e.g. durations in nanoseconds.
+ * <p>
+ * Like {@link Average}, when the maximum size is reached, new values will erase the oldest one.
+ * The sum of the values is exact: it is kept on 128 bits and updated in {@code O(1)}, the average
+ * being then rounded only once (correctly rounded). The sum of the squares of the values is kept exactly as well, on
+ * 192 bits, so that the variance does not suffer from cancellation whatever the magnitude of the
+ * values. As in {@link WindowStats}, the minimum and the maximum are kept with monotonic queues
+ * of the values.
+ * <p>
+ * {@code LongAverage} is <em>thread-safe</em> and the methods modifying the average are
+ * <em>synchronized</em> so that the insertion order of the values is consistent with the
+ * calls sequence from multiple threads.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ * @see Average
+ * @see WindowStats
+ */
+public class LongAverage implements Serializable {
+
+	private static final long serialVersionUID = 6019447153012846734L;
+
+	/**
+	 * The values used for computing the average.
+	 */
+	private final long[] values;
+
+	/**
+	 * The number of values.
+	 */
+	private int size;
+
+	/**
+	 * The index of the older value.
+	 */
+	private int older;
+
+	/**
+	 * The 64 low bits of the sum of the values.
+	 */
+	private long sumLow;
+
+	/**
+	 * The 64 high bits of the sum of the values, in two's complement.
+	 */
+	private long sumHigh;
+
+	/**
+	 * The 64 low bits of the sum of the squares of the values.
+	 */
+	private long squares0;
+
+	/**
+	 * The 64 middle bits of the sum of the squares of the values.
+	 */
+	private long squares1;
+
+	/**
+	 * The 64 high bits of the sum of the squares of the values.
+	 */
+	private long squares2;
+
+	/**
+	 * The number of values added since the creation or the last reset.
+	 */
+	private long added;
+
+	/**
+	 * The positions of the candidate minimums, in increasing order of values.
+	 */
+	private final MonotonicQueue minQueue;
+
+	/**
+	 * The positions of the candidate maximums, in decreasing order of values.
+	 */
+	private final MonotonicQueue maxQueue;
+
+	/**
+	 * The average of the values.
+	 */
+	private volatile double average;
+
+	/**
+	 * Creates a new {@code LongAverage}.
+	 *
+	 * @param size The maximum number of elements on which to do the average.
+	 */
+	public LongAverage(int size) {
+		if (size <= 0) {
+			throw new IllegalArgumentException();
+		}// else
+		values = new long[size];
+		minQueue = new MonotonicQueue(size, new ValueOrder(true));
+		maxQueue = new MonotonicQueue(size, new ValueOrder(false));
+	}
+
+	/**
+	 * Returns the average of the values.
+	 *
+	 * @return the average of the values.
+	 */
+	public double get() {
+		return average;
+	}
+
+	/**
+	 * Returns the exact sum of the values.
+	 *
+	 * @return the exact sum of the values.
+	 * @throws ArithmeticException if the sum does not fit in a {@code long}.
+	 */
+	public synchronized long getSum() {
+		if (sumHigh != sumLow >> 63) {
+			throw new ArithmeticException("long overflow");
+		}// else
+		return sumLow;
+	}
+
+	/**
+	 * Returns the number of values.
+	 *
+	 * @return the number of values.
+	 */
+	public synchronized int getCount() {
+		return size;
+	}
+
+	/**
+	 * Returns the population variance of the values, computed from the exact sums and rounded
+	 * once.
+	 *
+	 * @return the variance of the values, {@code 0} if there is no value.
+	 */
+	public synchronized double getVariance() {
+		return size == 0 ? 0.0 : squaredDeviations().doubleValue() / ((double) size * size);
+	}
+
+	/**
+	 * Returns the sample variance of the values, that is with Bessel's correction.
+	 *
+	 * @return the sample variance of the values, {@code 0} if there is less than two values.
+	 */
+	public synchronized double getSampleVariance() {
+		return size < 2 ? 0.0 : squaredDeviations().doubleValue() / ((double) size * (size - 1));
+	}
+
+	/**
+	 * Returns the population standard deviation of the values.
+	 *
+	 * @return the standard deviation of the values.
+	 */
+	public double getStandardDeviation() {
+		return Math.sqrt(getVariance());
+	}
+
+	/**
+	 * Returns the minimum of the values.
+	 *
+	 * @return the minimum of the values, {@code 0} if there is no value.
+	 */
+	public synchronized long getMin() {
+		return minQueue.isEmpty() ? 0L : valueAt(minQueue.first());
+	}
+
+	/**
+	 * Returns the maximum of the values.
+	 *
+	 * @return the maximum of the values, {@code 0} if there is no value.
+	 */
+	public synchronized long getMax() {
+		return maxQueue.isEmpty() ? 0L : valueAt(maxQueue.first());
+	}
+
+	/**
+	 * Returns {@code size * sum(x^2) - sum(x)^2}, that is {@code size^2} times the variance.
+	 */
+	private BigInteger squaredDeviations() {
+		final BigInteger squares = unsigned(squares2).shiftLeft(128).or(unsigned(squares1).shiftLeft(64))
+				.or(unsigned(squares0));
+		final BigInteger sum = BigInteger.valueOf(sumHigh).shiftLeft(64).or(unsigned(sumLow));
+		return squares.multiply(BigInteger.valueOf(size)).subtract(sum.multiply(sum));
+	}
+
+	private static BigInteger unsigned(long value) {
+		final BigInteger magnitude = BigInteger.valueOf(value & Long.MAX_VALUE);
+		return value < 0 ? magnitude.setBit(63) : magnitude;
+	}
+
+	private long valueAt(long position) {
+		return values[(int) (position % values.length)];
+	}
+
+	/**
+	 * Adds a new value in this {@code LongAverage} that will replace the oldest value.
+	 *
+	 * @param value The value to add.
+	 */
+	public synchronized void add(long value) {
+		internalAdd(value);
+		average = computeAverage();
+	}
+
+	/**
+	 * Adds the given values in this {@code LongAverage}, in order.
+	 *
+	 * @param values The values to add.
+	 */
+	public void add(long[] values) {
+		add(values, 0, values.length);
+	}
+
+	/**
+	 * Adds {@code length} values from {@code offset} in this {@code LongAverage}, in order.
+	 *
+	 * @param values The values to add.
+	 * @param offset The index of the first value to add.
+	 * @param length The number of values to add.
+	 * @throws IndexOutOfBoundsException if the range is out of the array's bounds.
+	 */
+	public synchronized void add(long[] values, int offset, int length) {
+		if (offset < 0 || length < 0 || offset + length > values.length) {
+			throw new IndexOutOfBoundsException();
+		}// else
+		for (int i = offset, end = offset + length; i < end; i++) {
+			internalAdd(values[i]);
+		}
+		if (length > 0) {
+			average = computeAverage();
+		}
+	}
+
+	private void internalAdd(long value) {
+		if (size < values.length) {
+			values[size++] = value;
+		} else {
+			final long oldest = values[older];
+			values[older++] = value;
+			if (older == size) {
+				older = 0;
+			}
+			subtract(oldest);
+			subtractSquare(oldest);
+		}
+		accumulate(value);
+		accumulateSquare(value);
+		// The erased value must be evicted before comparing the new one with the others
+		final long position = added++;
+		final long oldestPosition = added - size;
+		minQueue.evict(oldestPosition);
+		minQueue.push(position);
+		maxQueue.evict(oldestPosition);
+		maxQueue.push(position);
+	}
+
+	/**
+	 * Adds the given value to the 128 bits sum.
+	 */
+	private void accumulate(long value) {
+		final long low = sumLow + value;
+		final long carry = Long.compareUnsigned(low, sumLow) < 0 ? 1L : 0L;
+		sumHigh += (value >> 63) + carry;
+		sumLow = low;
+	}
+
+	/**
+	 * Subtracts the given value from the 128 bits sum.
+	 */
+	private void subtract(long value) {
+		final long borrow = Long.compareUnsigned(sumLow, value) < 0 ? 1L : 0L;
+		sumHigh -= (value >> 63) + borrow;
+		sumLow -= value;
+	}
+
+	/**
+	 * Adds the square of the given value to the 192 bits sum of the squares.
+	 */
+	private void accumulateSquare(long value) {
+		final long magnitude = Math.abs(value);
+		final long low = magnitude * magnitude;
+		final long high = unsignedMultiplyHigh(magnitude, magnitude);
+		final long s0 = squares0 + low;
+		final long carry0 = Long.compareUnsigned(s0, low) < 0 ? 1L : 0L;
+		final long s1 = squares1 + high + carry0;
+		// high <= 2^62, so high + carry0 never overflows
+		final long carry1 = Long.compareUnsigned(s1, squares1) < 0 ? 1L : 0L;
+		squares0 = s0;
+		squares1 = s1;
+		squares2 += carry1;
+	}
+
+	/**
+	 * Subtracts the square of the given value from the 192 bits sum of the squares.
+	 */
+	private void subtractSquare(long value) {
+		final long magnitude = Math.abs(value);
+		final long low = magnitude * magnitude;
+		final long high = unsignedMultiplyHigh(magnitude, magnitude);
+		final long borrow0 = Long.compareUnsigned(squares0, low) < 0 ? 1L : 0L;
+		final long subtrahend = high + borrow0;
+		final long borrow1 = Long.compareUnsigned(squares1, subtrahend) < 0 ? 1L : 0L;
+		squares0 -= low;
+		squares1 -= subtrahend;
+		squares2 -= borrow1;
+	}
+
+	/**
+	 * Returns the 64 high bits of the unsigned 128 bits product of the given values.
+	 */
+	private static long unsignedMultiplyHigh(long x, long y) {
+		final long x0 = x & 0xFFFFFFFFL;
+		final long x1 = x >>> 32;
+		final long y0 = y & 0xFFFFFFFFL;
+		final long y1 = y >>> 32;
+		final long p00 = x0 * y0;
+		final long p01 = x0 * y1;
+		final long p10 = x1 * y0;
+		final long middle = (p00 >>> 32) + (p01 & 0xFFFFFFFFL) + (p10 & 0xFFFFFFFFL);
+		return x1 * y1 + (p01 >>> 32) + (p10 >>> 32) + (middle >>> 32);
+	}
+
+	private double computeAverage() {
+		if (sumHigh == sumLow >> 63 && sumLow >= -(1L << 53) && sumLow <= 1L << 53) {
+			// Exact conversion, only the division rounds
+			return sumLow / (double) size;
+		}// else
+		final BigInteger sum = BigInteger.valueOf(sumHigh).shiftLeft(64).or(unsigned(sumLow));
+		final BigInteger magnitude = sum.abs();
+		// A quotient of at least 64 bits, the lowest one set if inexact so that it rounds once
+		final int shift = Math.max(0, 95 - magnitude.bitLength());
+		final BigInteger[] division = magnitude.shiftLeft(shift).divideAndRemainder(BigInteger.valueOf(size));
+		final BigInteger quotient = division[1].signum() == 0 ? division[0] : division[0].setBit(0);
+		final double average = Math.scalb(quotient.doubleValue(), -shift);
+		return sum.signum() < 0 ? -average : average;
+	}
+
+	/**
+	 * Reset this {@code LongAverage} to {@code 0} and delete all the previous added values.
+	 */
+	public synchronized void reset() {
+		average = 0.0;
+		sumLow = 0L;
+		sumHigh = 0L;
+		squares0 = 0L;
+		squares1 = 0L;
+		squares2 = 0L;
+		older = 0;
+		size = 0;
+		added = 0;
+		minQueue.clear();
+		maxQueue.clear();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append('[');
+		synchronized (this) {
+			for (int i = 0; i < size; i++) {
+				builder.append(values[i]).append(", ");
+			}
+		}
+		if (builder.length() > 1) {
+			builder.delete(builder.length() - 2, builder.length());
+		}
+		builder.append(']');
+		return builder.toString();
+	}
+
+	/**
+	 * Orders the positions by the values of the window, increasingly for the minimum and
+	 * decreasingly for the maximum.
+	 */
+	private final class ValueOrder implements MonotonicQueue.Order {
+
+		private static final long serialVersionUID = 4716263541408370852L;
+
+		private final boolean increasing;
+
+		ValueOrder(boolean increasing) {
+			this.increasing = increasing;
+		}
+
+		@Override
+		public boolean isBefore(long position, long newPosition) {
+			final long value = valueAt(position);
+			final long newValue = valueAt(newPosition);
+			return increasing ? value < newValue : value > newValue;
+		}
+	}
+}
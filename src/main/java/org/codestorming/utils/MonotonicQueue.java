@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2012-2017 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.utils;
+
+import java.io.Serializable;
+
+/**
+ * Bounded double-ended queue of value positions, the values being monotonic from the first to the
+ * last.
+ * <p>
+ * Pushing the positions of a sliding window, the first position is the one of the minimum (or the
+ * maximum) of the window, in amortized {@code O(1)}. The values themselves are held by the owner
+ * of the queue, which compares them through an {@link Order}.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ */
+final class MonotonicQueue implements Serializable {
+
+	private static final long serialVersionUID = 2457183342018653180L;
+
+	/**
+	 * The order of the values of the positions in a {@link MonotonicQueue}.
+	 */
+	interface Order extends Serializable {
+
+		/**
+		 * Indicates if the value at the first position must stay before the value at the second
+		 * one.
+		 *
+		 * @param position The position of the value already in the queue.
+		 * @param newPosition The position of the value being pushed.
+		 * @return {@code true} if the value at {@code position} is strictly before the value at
+		 *         {@code newPosition};<br> {@code false} otherwise.
+		 */
+		boolean isBefore(long position, long newPosition);
+	}
+
+	private final Order order;
+
+	private final long[] positions;
+
+	private int head;
+
+	private int length;
+
+	/**
+	 * Creates a new {@code MonotonicQueue}.
+	 *
+	 * @param capacity The maximum number of positions, the size of the window.
+	 * @param order The order of the values of the positions.
+	 */
+	MonotonicQueue(int capacity, Order order) {
+		positions = new long[capacity];
+		this.order = order;
+	}
+
+	/**
+	 * Adds the given position after removing the positions which values can't be the first
+	 * anymore.
+	 *
+	 * @param position The position to add.
+	 */
+	void push(long position) {
+		while (length > 0 && !order.isBefore(positions[index(length - 1)], position)) {
+			length--;
+		}
+		positions[index(length++)] = position;
+	}
+
+	/**
+	 * Removes the positions lower than the given one.
+	 *
+	 * @param oldestPosition The position of the oldest value of the window.
+	 */
+	void evict(long oldestPosition) {
+		while (length > 0 && positions[head] < oldestPosition) {
+			head = index(1);
+			length--;
+		}
+	}
+
+	long first() {
+		return positions[head];
+	}
+
+	boolean isEmpty() {
+		return length == 0;
+	}
+
+	void clear() {
+		head = 0;
+		length = 0;
+	}
+
+	private int index(int offset) {
+		final int index = head + offset;
+		return index < positions.length ? index : index - positions.length;
+	}
+}
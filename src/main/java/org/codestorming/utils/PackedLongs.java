@@ -0,0 +1,505 @@
+/*
+ * Copyright (c) 2012-2017 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.utils;
+
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * A {@code PackedLongs} is a non-mutable sequence of {@code long} values compressed by blocks of
+ * {@value #BLOCK_SIZE} values, designed for sorted sequences like ids, offsets or timestamps.
+ * <p>
+ * Each block keeps its first value, then the differences between consecutive values minus their
+ * minimum (<em>frame of reference</em>), packed on the number of bits needed by the largest one.
+ * A sequence of evenly spaced timestamps needs then no bit per value, and a sorted sequence which
+ * gaps are lower than {@code 2^k} about {@code k} bits per value. Unsorted sequences are
+ * supported but compress poorly.
+ * <p>
+ * Any block can be {@link #decodeBlock(int, long[], int) decoded} independently, and the
+ * sequence {@link #toByteArray() serialized} as is.
+ * <p>
+ * Sequences are built with an {@link Encoder}, values being packed as they are added, or with
+ * {@link #encode(long[], int, int)}.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ * @see Bytes#putVarints(long[], int, int, byte[], int)
+ */
+public final class PackedLongs {
+
+	/**
+	 * The number of values of a block.
+	 */
+	public static final int BLOCK_SIZE = 128;
+
+	private static final int BLOCK_SHIFT = 7;
+
+	/**
+	 * The number of bytes of the header of a serialized block: first value, minimum difference
+	 * and bit width.
+	 */
+	private static final int BLOCK_HEADER = 17;
+
+	/**
+	 * Encodes the given values.
+	 *
+	 * @param values The values to encode.
+	 * @return the encoded sequence.
+	 */
+	public static PackedLongs encode(long[] values) {
+		return encode(values, 0, values.length);
+	}
+
+	/**
+	 * Encodes {@code length} values from {@code offset}.
+	 *
+	 * @param values The values to encode.
+	 * @param offset The index of the first value to encode.
+	 * @param length The number of values to encode.
+	 * @return the encoded sequence.
+	 * @throws IndexOutOfBoundsException if the range is out of the array's bounds.
+	 */
+	public static PackedLongs encode(long[] values, int offset, int length) {
+		Encoder encoder = new Encoder();
+		encoder.add(values, offset, length);
+		return encoder.build();
+	}
+
+	/**
+	 * Reads a sequence serialized by {@link #toByteArray()}.
+	 *
+	 * @param src The source array.
+	 * @param offset The index of the first byte of the serialized sequence.
+	 * @return the sequence.
+	 * @throws IllegalArgumentException if the bytes are not a valid serialized sequence.
+	 * @throws IndexOutOfBoundsException if the serialized sequence is truncated.
+	 */
+	public static PackedLongs fromByteArray(byte[] src, int offset) {
+		final int size = Bytes.getInt(src, offset);
+		if (size < 0) {
+			throw new IllegalArgumentException("Invalid size : " + size);
+		}// else
+		final int blocks = blockCount(size);
+		// The size being untrusted, the headers must be there before allocating for them
+		final long available = src.length - (offset + 4L) - (long) blocks * BLOCK_HEADER;
+		if (available < 0) {
+			throw new IndexOutOfBoundsException("Truncated sequence of " + size + " values");
+		}// else
+		final long maxWords = available / 8;
+		final long[] bases = new long[blocks];
+		final long[] minDeltas = new long[blocks];
+		final byte[] widths = new byte[blocks];
+		final int[] offsets = new int[blocks + 1];
+		int index = offset + 4;
+		long words = 0L;
+		for (int block = 0; block < blocks; block++) {
+			bases[block] = Bytes.getLong(src, index);
+			minDeltas[block] = Bytes.getLong(src, index + 8);
+			final int width = src[index + 16];
+			if (width < 0 || width > 64) {
+				throw new IllegalArgumentException("Invalid bit width : " + width);
+			}// else
+			widths[block] = (byte) width;
+			words += wordCount(blockLength(size, block) - 1, width);
+			if (words > maxWords) {
+				throw new IndexOutOfBoundsException("Truncated sequence of " + size + " values");
+			}// else
+			offsets[block + 1] = (int) words;
+			index += BLOCK_HEADER;
+		}
+		// One padding word for the branch-free unpacking
+		final long[] packed = new long[offsets[blocks] + 1];
+		Bytes.getLongs(src, index, packed, 0, offsets[blocks], ByteOrder.BIG_ENDIAN);
+		return new PackedLongs(size, bases, minDeltas, widths, offsets, packed);
+	}
+
+	private static int blockCount(int size) {
+		return (int) (((long) size + BLOCK_SIZE - 1) >>> BLOCK_SHIFT);
+	}
+
+	private static int blockLength(int size, int block) {
+		return Math.min(BLOCK_SIZE, size - (block << BLOCK_SHIFT));
+	}
+
+	private static int wordCount(int values, int width) {
+		return (values * width + 63) >>> 6;
+	}
+
+	private final int size;
+
+	/**
+	 * The first value of each block.
+	 */
+	private final long[] bases;
+
+	/**
+	 * The minimum difference between consecutive values of each block.
+	 */
+	private final long[] minDeltas;
+
+	/**
+	 * The number of bits of each packed difference, per block.
+	 */
+	private final byte[] widths;
+
+	/**
+	 * The index in {@link #packed} of the first word of each block, followed by the number of
+	 * packed words.
+	 */
+	private final int[] offsets;
+
+	/**
+	 * The packed differences, followed by one padding word.
+	 */
+	private final long[] packed;
+
+	private PackedLongs(int size, long[] bases, long[] minDeltas, byte[] widths, int[] offsets, long[] packed) {
+		this.size = size;
+		this.bases = bases;
+		this.minDeltas = minDeltas;
+		this.widths = widths;
+		this.offsets = offsets;
+		this.packed = packed;
+	}
+
+	/**
+	 * Returns the number of values.
+	 *
+	 * @return the number of values.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of blocks.
+	 *
+	 * @return the number of blocks.
+	 */
+	public int getBlockCount() {
+		return bases.length;
+	}
+
+	/**
+	 * Returns the number of bytes of the {@link #toByteArray() serialized} sequence.
+	 *
+	 * @return the number of bytes of the serialized sequence.
+	 */
+	public int getEncodedSize() {
+		return 4 + bases.length * BLOCK_HEADER + offsets[bases.length] * 8;
+	}
+
+	/**
+	 * Returns the value at the given index.
+	 * <p>
+	 * The values of the block preceding the given index are unpacked, prefer
+	 * {@link #decodeBlock(int, long[], int)} to read consecutive values.
+	 *
+	 * @param index The index of the value.
+	 * @return the value at the given index.
+	 * @throws IndexOutOfBoundsException if {@code index < 0 || index >= size()}.
+	 */
+	public long get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+		}// else
+		final int block = index >>> BLOCK_SHIFT;
+		final int count = index & (BLOCK_SIZE - 1);
+		final int width = widths[block];
+		final long minDelta = minDeltas[block];
+		if (width == 0) {
+			return bases[block] + count * minDelta;
+		}// else
+		final long mask = mask(width);
+		final int first = offsets[block];
+		long value = bases[block];
+		for (int i = 0; i < count; i++) {
+			value += minDelta + unpack(first, i * width, mask);
+		}
+		return value;
+	}
+
+	/**
+	 * Decodes the values of the given block into {@code dst} from {@code dstOffset}.
+	 *
+	 * @param block The index of the block.
+	 * @param dst The destination array.
+	 * @param dstOffset The index of the first value to write.
+	 * @return the number of decoded values, {@value #BLOCK_SIZE} except for the last block.
+	 * @throws IndexOutOfBoundsException if the block does not exist or if there is not enough
+	 *         space in {@code dst}.
+	 */
+	public int decodeBlock(int block, long[] dst, int dstOffset) {
+		if (block < 0 || block >= bases.length) {
+			throw new IndexOutOfBoundsException("block " + block + ", blocks " + bases.length);
+		}// else
+		final int length = blockLength(size, block);
+		Bytes.checkRange(dst.length, dstOffset, length);
+		final int width = widths[block];
+		if (width == 0) {
+			Arrays.fill(dst, dstOffset + 1, dstOffset + length, 0L);
+		} else {
+			// Unpacking without dependency between iterations, then prefix sum
+			final long mask = mask(width);
+			final int first = offsets[block];
+			for (int i = 1; i < length; i++) {
+				dst[dstOffset + i] = unpack(first, (i - 1) * width, mask);
+			}
+		}
+		final long minDelta = minDeltas[block];
+		long value = bases[block];
+		dst[dstOffset] = value;
+		for (int i = 1; i < length; i++) {
+			value += minDelta + dst[dstOffset + i];
+			dst[dstOffset + i] = value;
+		}
+		return length;
+	}
+
+	/**
+	 * Decodes all the values into {@code dst} from {@code dstOffset}.
+	 *
+	 * @param dst The destination array.
+	 * @param dstOffset The index of the first value to write.
+	 * @throws IndexOutOfBoundsException if there is not enough space in {@code dst}.
+	 */
+	public void decode(long[] dst, int dstOffset) {
+		Bytes.checkRange(dst.length, dstOffset, size);
+		int index = dstOffset;
+		for (int block = 0; block < bases.length; block++) {
+			index += decodeBlock(block, dst, index);
+		}
+	}
+
+	/**
+	 * Decodes all the values.
+	 *
+	 * @return the values of this sequence.
+	 */
+	public long[] toArray() {
+		final long[] values = new long[size];
+		decode(values, 0);
+		return values;
+	}
+
+	/**
+	 * Returns the bits at the given bit position from the given word, the padding word allowing to
+	 * always read the following word.
+	 */
+	private long unpack(int firstWord, int bitPosition, long mask) {
+		final int word = firstWord + (bitPosition >>> 6);
+		final int shift = bitPosition & 63;
+		// The double shift gives 0 instead of the whole word when shift == 0
+		return ((packed[word] >>> shift) | ((packed[word + 1] << 1) << (63 - shift))) & mask;
+	}
+
+	private static long mask(int width) {
+		return width == 64 ? -1L : (1L << width) - 1;
+	}
+
+	/**
+	 * Serializes this sequence: its size, the headers of the blocks and the packed words, in
+	 * big-endian.
+	 *
+	 * @return the serialized sequence.
+	 * @see #fromByteArray(byte[], int)
+	 */
+	public byte[] toByteArray() {
+		final byte[] bytes = new byte[getEncodedSize()];
+		int index = Bytes.putInt(bytes, 0, size);
+		for (int block = 0; block < bases.length; block++) {
+			index = Bytes.putLong(bytes, index, bases[block]);
+			index = Bytes.putLong(bytes, index, minDeltas[block]);
+			bytes[index++] = widths[block];
+		}
+		Bytes.putLongs(packed, 0, offsets[bases.length], bytes, index, ByteOrder.BIG_ENDIAN);
+		return bytes;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
+		if (!(obj instanceof PackedLongs)) {
+			return false;
+		}
+		PackedLongs other = (PackedLongs) obj;
+		return size == other.size && Arrays.equals(bases, other.bases) && Arrays.equals(minDeltas, other.minDeltas)
+				&& Arrays.equals(widths, other.widths) && Arrays.equals(packed, other.packed);
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = size;
+		hash = 31 * hash + Arrays.hashCode(bases);
+		hash = 31 * hash + Arrays.hashCode(minDeltas);
+		return 31 * hash + Arrays.hashCode(packed);
+	}
+
+	@Override
+	public String toString() {
+		return "[size=" + size + ", blocks=" + bases.length + ", bytes=" + getEncodedSize() + ']';
+	}
+
+	/**
+	 * An {@code Encoder} builds a {@link PackedLongs} from values added one at a time or by
+	 * arrays, each block being packed as soon as it is complete.
+	 * <p>
+	 * {@code Encoder} is <em>not thread-safe</em>.
+	 */
+	public static final class Encoder {
+
+		private final long[] block = new long[BLOCK_SIZE];
+
+		private int blockLength;
+
+		private int size;
+
+		private int blocks;
+
+		private long[] bases = new long[4];
+
+		private long[] minDeltas = new long[4];
+
+		private byte[] widths = new byte[4];
+
+		private int[] offsets = new int[5];
+
+		private long[] packed = new long[16];
+
+		/**
+		 * Returns the number of values added since the creation of this encoder or the last
+		 * {@link #build()}.
+		 *
+		 * @return the number of added values.
+		 */
+		public int size() {
+			return size;
+		}
+
+		/**
+		 * Adds the given value at the end of the sequence.
+		 *
+		 * @param value The value to add.
+		 * @return this encoder.
+		 * @throws IllegalStateException if the sequence already has {@link Integer#MAX_VALUE}
+		 *         values.
+		 */
+		public Encoder add(long value) {
+			if (size == Integer.MAX_VALUE) {
+				throw new IllegalStateException("Too many values.");
+			}// else
+			block[blockLength++] = value;
+			size++;
+			if (blockLength == BLOCK_SIZE) {
+				flush();
+			}
+			return this;
+		}
+
+		/**
+		 * Adds {@code length} values from {@code offset} at the end of the sequence.
+		 *
+		 * @param values The values to add.
+		 * @param offset The index of the first value to add.
+		 * @param length The number of values to add.
+		 * @return this encoder.
+		 * @throws IndexOutOfBoundsException if the range is out of the array's bounds.
+		 * @throws IllegalStateException if the sequence would have more than
+		 *         {@link Integer#MAX_VALUE} values.
+		 */
+		public Encoder add(long[] values, int offset, int length) {
+			Bytes.checkRange(values.length, offset, length);
+			if (length > Integer.MAX_VALUE - size) {
+				throw new IllegalStateException("Too many values.");
+			}// else
+			int i = offset;
+			final int end = offset + length;
+			while (i < end) {
+				final int count = Math.min(BLOCK_SIZE - blockLength, end - i);
+				System.arraycopy(values, i, block, blockLength, count);
+				blockLength += count;
+				size += count;
+				i += count;
+				if (blockLength == BLOCK_SIZE) {
+					flush();
+				}
+			}
+			return this;
+		}
+
+		/**
+		 * Packs the pending block.
+		 */
+		private void flush() {
+			long minDelta = Long.MAX_VALUE;
+			for (int i = 1; i < blockLength; i++) {
+				minDelta = Math.min(minDelta, block[i] - block[i - 1]);
+			}
+			long bits = 0L;
+			for (int i = 1; i < blockLength; i++) {
+				bits |= block[i] - block[i - 1] - minDelta;
+			}
+			final int width = 64 - Long.numberOfLeadingZeros(bits);
+			final int words = wordCount(blockLength - 1, width);
+			if (blocks == bases.length) {
+				final int capacity = blocks * 2;
+				bases = Arrays.copyOf(bases, capacity);
+				minDeltas = Arrays.copyOf(minDeltas, capacity);
+				widths = Arrays.copyOf(widths, capacity);
+				offsets = Arrays.copyOf(offsets, capacity + 1);
+			}
+			final int first = offsets[blocks];
+			if (first + words + 1 > packed.length) {
+				packed = Arrays.copyOf(packed, Math.max(packed.length * 2, first + words + 1));
+			}
+			bases[blocks] = block[0];
+			minDeltas[blocks] = blockLength > 1 ? minDelta : 0L;
+			widths[blocks] = (byte) width;
+			if (width > 0) {
+				int bitPosition = 0;
+				for (int i = 1; i < blockLength; i++) {
+					final long delta = block[i] - block[i - 1] - minDelta;
+					final int word = first + (bitPosition >>> 6);
+					final int shift = bitPosition & 63;
+					packed[word] |= delta << shift;
+					if (shift + width > 64) {
+						packed[word + 1] |= delta >>> (64 - shift);
+					}
+					bitPosition += width;
+				}
+			}
+			offsets[++blocks] = first + words;
+			blockLength = 0;
+		}
+
+		/**
+		 * Creates the sequence of the values added since the creation of this encoder or the last
+		 * {@code build()}, then resets this encoder.
+		 *
+		 * @return the encoded sequence.
+		 */
+		public PackedLongs build() {
+			if (blockLength > 0) {
+				flush();
+			}
+			final int words = offsets[blocks];
+			final PackedLongs sequence = new PackedLongs(size, Arrays.copyOf(bases, blocks),
+					Arrays.copyOf(minDeltas, blocks), Arrays.copyOf(widths, blocks), Arrays.copyOf(offsets, blocks + 1),
+					Arrays.copyOf(packed, words + 1));
+			Arrays.fill(packed, 0, Math.min(words + 1, packed.length), 0L);
+			size = 0;
+			blocks = 0;
+			return sequence;
+		}
+	}
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2012-2017 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * A {@code RateMeter} measures the rate of events per second.
+ * <p>
+ * Besides the mean rate since the creation, the meter gives the exponentially weighted moving
+ * average rates over one, five and fifteen minutes, like the UNIX load averages. The events are
+ * counted and the averages are updated every {@value #TICK_SECONDS} seconds, lazily when
+ * marking events or reading the rates.
+ * <p>
+ * {@code RateMeter} is <em>thread-safe</em> and <em>lock-free</em>.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ * @see ExponentialAverage
+ */
+public class RateMeter {
+
+	/**
+	 * The interval between two updates of the averages.
+	 */
+	public static final int TICK_SECONDS = 5;
+
+	private static final long TICK_NANOS = TimeUnit.SECONDS.toNanos(TICK_SECONDS);
+
+	private static final LongSupplier SYSTEM_CLOCK = new LongSupplier() {
+		@Override
+		public long getAsLong() {
+			return System.nanoTime();
+		}
+	};
+
+	private final LongSupplier clock;
+
+	private final long startTime;
+
+	private final AtomicLong lastTick;
+
+	/**
+	 * The events since the creation, never reset.
+	 */
+	private final LongAdder marked = new LongAdder();
+
+	/**
+	 * The number of events already applied to the averages.
+	 */
+	private final AtomicLong ticked = new AtomicLong();
+
+	private final Rate oneMinuteRate = new Rate(1);
+
+	private final Rate fiveMinutesRate = new Rate(5);
+
+	private final Rate fifteenMinutesRate = new Rate(15);
+
+	/**
+	 * Creates a new {@code RateMeter} using {@link System#nanoTime()}.
+	 */
+	public RateMeter() {
+		this(SYSTEM_CLOCK);
+	}
+
+	/**
+	 * Creates a new {@code RateMeter}.
+	 *
+	 * @param clock The clock giving the current time in nanoseconds.
+	 */
+	public RateMeter(LongSupplier clock) {
+		this.clock = clock;
+		startTime = clock.getAsLong();
+		lastTick = new AtomicLong(startTime);
+	}
+
+	/**
+	 * Marks the occurrence of an event.
+	 */
+	public void mark() {
+		mark(1L);
+	}
+
+	/**
+	 * Marks the occurrence of the given number of events.
+	 *
+	 * @param events The number of events.
+	 */
+	public void mark(long events) {
+		tickIfNecessary();
+		marked.add(events);
+	}
+
+	/**
+	 * Returns the number of marked events.
+	 *
+	 * @return the number of marked events.
+	 */
+	public long getCount() {
+		return marked.sum();
+	}
+
+	/**
+	 * Returns the mean rate of events per second since the creation of this {@code RateMeter}.
+	 *
+	 * @return the mean rate of events per second.
+	 */
+	public double getMeanRate() {
+		final long elapsed = clock.getAsLong() - startTime;
+		if (elapsed <= 0) {
+			return 0.0;
+		}// else
+		return getCount() / (elapsed / 1e9);
+	}
+
+	/**
+	 * Returns the exponentially weighted moving average rate of events per second over one
+	 * minute.
+	 *
+	 * @return the one minute rate of events per second.
+	 */
+	public double getOneMinuteRate() {
+		tickIfNecessary();
+		return oneMinuteRate.get();
+	}
+
+	/**
+	 * Returns the exponentially weighted moving average rate of events per second over five
+	 * minutes.
+	 *
+	 * @return the five minutes rate of events per second.
+	 */
+	public double getFiveMinutesRate() {
+		tickIfNecessary();
+		return fiveMinutesRate.get();
+	}
+
+	/**
+	 * Returns the exponentially weighted moving average rate of events per second over fifteen
+	 * minutes.
+	 *
+	 * @return the fifteen minutes rate of events per second.
+	 */
+	public double getFifteenMinutesRate() {
+		tickIfNecessary();
+		return fifteenMinutesRate.get();
+	}
+
+	/**
+	 * Updates the averages if at least one tick interval elapsed since the last update.
+	 * <p>
+	 * Only the thread succeeding to move {@link #lastTick} updates the averages with the elapsed
+	 * ticks. The winners of two successive moves may update them at the same time, each average
+	 * being then updated by compare-and-set.
+	 */
+	private void tickIfNecessary() {
+		final long oldTick = lastTick.get();
+		final long ticks = (clock.getAsLong() - oldTick) / TICK_NANOS;
+		if (ticks > 0 && lastTick.compareAndSet(oldTick, oldTick + ticks * TICK_NANOS)) {
+			// The counter is never drained, LongAdder.sumThenReset() not being atomic on Java 8
+			long previous;
+			long total;
+			do {
+				previous = ticked.get();
+				total = marked.sum();
+			} while (total > previous && !ticked.compareAndSet(previous, total));
+			final long events = Math.max(0L, total - previous);
+			final double instantRate = events / (double) TICK_SECONDS;
+			oneMinuteRate.tick(instantRate, ticks);
+			fiveMinutesRate.tick(instantRate, ticks);
+			fifteenMinutesRate.tick(instantRate, ticks);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "[count=" + getCount() + ", 1m=" + getOneMinuteRate() + ", 5m=" + getFiveMinutesRate()
+				+ ", 15m=" + getFifteenMinutesRate() + ']';
+	}
+
+	/**
+	 * Exponentially weighted moving average of the rate, updated on each tick.
+	 */
+	private static final class Rate {
+
+		/**
+		 * The bits of the rate, {@code NaN} bits before the first tick.
+		 */
+		private static final long NO_VALUE = Double.doubleToRawLongBits(Double.NaN);
+
+		/**
+		 * The weight of the rate of a tick.
+		 */
+		private final double alpha;
+
+		private final AtomicLong rate = new AtomicLong(NO_VALUE);
+
+		Rate(int minutes) {
+			alpha = 1.0 - Math.exp(-TICK_SECONDS / (60.0 * minutes));
+		}
+
+		/**
+		 * Applies the given rate for the first elapsed tick and a null rate for the others.
+		 * <p>
+		 * Two threads may tick at the same time (see {@link #tickIfNecessary()}), the update is
+		 * retried until no other tick changed the rate in between.
+		 */
+		void tick(double instantRate, long ticks) {
+			final double decay = ticks > 1 ? Math.pow(1.0 - alpha, ticks - 1) : 1.0;
+			long bits;
+			double newRate;
+			do {
+				bits = rate.get();
+				if (bits == NO_VALUE) {
+					newRate = instantRate;
+				} else {
+					final double current = Double.longBitsToDouble(bits);
+					newRate = current + alpha * (instantRate - current);
+				}
+				newRate *= decay;
+			} while (!rate.compareAndSet(bits, Double.doubleToRawLongBits(newRate)));
+		}
+
+		double get() {
+			final long bits = rate.get();
+			return bits == NO_VALUE ? 0.0 : Double.longBitsToDouble(bits);
+		}
+	}
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2012-2017 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.utils;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@code StripedAverage} is an {@link Average} for many concurrent writers.
+ * <p>
+ * The values are spread over several <em>stripes</em>, each stripe being an {@link Average} of
+ * {@code ceil(size / stripes)} values. The stripes are combined when calling {@link #get()}.
+ * <p>
+ * <strong>The window is per stripe:</strong> a {@code StripedAverage} of size {@code N} is
+ * <em>not</em> the average of the {@code N} last added values, but of the
+ * {@code ceil(N / stripes)} last values of each stripe.
+ * <p>
+ * A thread adds its values to the same stripe, chosen by its id, as long as it does not find the
+ * stripe locked by another thread. On contention, the thread moves to another stripe, like the
+ * cells of a {@link java.util.concurrent.atomic.LongAdder LongAdder}, so that threads adding values
+ * concurrently end up on different stripes.
+ * <p>
+ * Compared to {@link Average}, a {@code StripedAverage} gives the following weaker guarantees:
+ * <ul>
+ * <li>the insertion order is only consistent for the values added to the same stripe, the
+ * values of a thread moving to another stripe after a contention;</li>
+ * <li>each stripe keeps its own most recent values, the average is then computed on the most
+ * recent values of each stripe and not on the {@code size} most recent values. When the threads
+ * add values at different rates, older values may remain in the less used stripes;</li>
+ * <li>{@link #get()} reads each stripe atomically but not all the stripes at once, values added
+ * during the call may or may not be taken into account.</li>
+ * </ul>
+ * {@code StripedAverage} is <em>thread-safe</em>.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ * @see Average
+ */
+public class StripedAverage implements Serializable {
+
+	private static final long serialVersionUID = 3317432268017654791L;
+
+	/**
+	 * The probe of each thread, from which its stripe is chosen, changed on contention.
+	 */
+	private static final ThreadLocal<int[]> PROBES = new ThreadLocal<int[]>() {
+		@Override
+		protected int[] initialValue() {
+			// Fibonacci hashing of the thread id, never 0 for the xorshift
+			final int hash = (int) (Thread.currentThread().getId() * 0x9E3779B97F4A7C15L >>> 32);
+			return new int[] {hash != 0 ? hash : 1};
+		}
+	};
+
+	private final Average[] stripes;
+
+	/**
+	 * The locks of the stripes, detecting the contention between the threads adding values.
+	 */
+	private final ReentrantLock[] locks;
+
+	/**
+	 * Creates a new {@code StripedAverage} with a number of stripes depending on the number of
+	 * available processors.
+	 *
+	 * @param size The maximum number of elements on which to do the average.
+	 */
+	public StripedAverage(int size) {
+		this(size, 2 * Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a new {@code StripedAverage}.
+	 *
+	 * @param size The maximum number of elements on which to do the average.
+	 * @param stripes The number of stripes, rounded down to a power of two and limited to
+	 *        {@code size}.
+	 */
+	public StripedAverage(int size, int stripes) {
+		if (size <= 0 || stripes <= 0) {
+			throw new IllegalArgumentException();
+		}// else
+		final int count = Integer.highestOneBit(Math.min(stripes, size));
+		final int stripeSize = (size + count - 1) / count;
+		this.stripes = new Average[count];
+		locks = new ReentrantLock[count];
+		for (int i = 0; i < count; i++) {
+			this.stripes[i] = new Average(stripeSize);
+			locks[i] = new ReentrantLock();
+		}
+	}
+
+	/**
+	 * Returns the average of the values of all the stripes.
+	 *
+	 * @return the average of the values.
+	 */
+	public double get() {
+		double sum = 0.0;
+		long count = 0;
+		for (Average stripe : stripes) {
+			synchronized (stripe) {
+				sum += stripe.sum();
+				count += stripe.count();
+			}
+		}
+		return count == 0 ? 0.0 : sum / count;
+	}
+
+	/**
+	 * Creates the summary of the current values of all the stripes, which may be merged with the
+	 * summaries of other averages.
+	 *
+	 * @return the summary of the current values.
+	 */
+	public AverageSummary summary() {
+		final List<AverageSummary> summaries = new ArrayList<>(stripes.length);
+		for (Average stripe : stripes) {
+			summaries.add(stripe.summary());
+		}
+		return AverageSummary.mergeAll(summaries);
+	}
+
+	/**
+	 * Adds a new value in the stripe of the current thread, replacing the oldest value of that
+	 * stripe.
+	 * <p>
+	 * If the stripe is locked by another thread, the current thread moves to another stripe and
+	 * adds the value there.
+	 *
+	 * @param value The value to add.
+	 */
+	public void add(double value) {
+		final int[] probe = PROBES.get();
+		final int mask = stripes.length - 1;
+		int index = probe[0] & mask;
+		ReentrantLock lock = locks[index];
+		if (!lock.tryLock()) {
+			probe[0] = advanceProbe(probe[0]);
+			index = probe[0] & mask;
+			lock = locks[index];
+			lock.lock();
+		}
+		try {
+			stripes[index].add(value);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private static int advanceProbe(int probe) {
+		// Marsaglia xorshift, as for the cells of LongAdder
+		probe ^= probe << 13;
+		probe ^= probe >>> 17;
+		probe ^= probe << 5;
+		return probe;
+	}
+
+	/**
+	 * Reset this {@code StripedAverage} to {@code 0} and delete all the previous added values.
+	 * <p>
+	 * <em>The stripes are reset one after the other.</em>
+	 */
+	public void reset() {
+		for (Average stripe : stripes) {
+			stripe.reset();
+		}
+	}
+
+	/**
+	 * Returns the number of stripes.
+	 *
+	 * @return the number of stripes.
+	 */
+	public int getStripeCount() {
+		return stripes.length;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append('[');
+		for (Average stripe : stripes) {
+			builder.append(stripe).append(", ");
+		}
+		builder.delete(builder.length() - 2, builder.length());
+		builder.append(']');
+		return builder.toString();
+	}
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2012-2017 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.utils;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A {@code TimeWindowAverage} allows to compute the average of the values added during a
+ * specific duration.
+ * <p>
+ * The window is divided in a fixed number of <em>buckets</em> of equal duration, each bucket
+ * holding only the sum and the number of the values added during its time slice. The buckets are
+ * rotated lazily when adding a value or getting the average, the memory used is then the same
+ * whatever the number of values added.
+ * <p>
+ * The average is computed on the values of the current bucket and the previous ones, that is on
+ * a duration between {@code window - window / buckets} and {@code window}. The more buckets,
+ * the more precise the window.
+ * <p>
+ * The window being a duration and not a number of values, the {@link #summary() summaries} have
+ * a window of {@code 0}, the duration being given by {@link #getWindow(TimeUnit)} and
+ * {@link #getBucketCount()}.
+ * <p>
+ * The clock is not serialized: a deserialized {@code TimeWindowAverage} uses
+ * {@link System#nanoTime()}, its buckets ending at the time of the deserialization.
+ * <p>
+ * {@code TimeWindowAverage} is <em>thread-safe</em>.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ * @see Average
+ */
+public class TimeWindowAverage implements Serializable {
+
+	private static final long serialVersionUID = 7160495387418236209L;
+
+	private static final LongSupplier SYSTEM_CLOCK = new LongSupplier() {
+		@Override
+		public long getAsLong() {
+			return System.nanoTime();
+		}
+	};
+
+	private transient LongSupplier clock;
+
+	/**
+	 * The duration of a bucket in nanoseconds.
+	 */
+	private final long bucketNanos;
+
+	private final double[] sums;
+
+	private final long[] counts;
+
+	/**
+	 * The number of the current bucket since the clock's origin.
+	 */
+	private long current;
+
+	private double sum;
+
+	private long count;
+
+	/**
+	 * Creates a new {@code TimeWindowAverage} using {@link System#nanoTime()}.
+	 *
+	 * @param window The duration of the window.
+	 * @param unit The unit of {@code window}.
+	 * @param buckets The number of buckets dividing the window.
+	 */
+	public TimeWindowAverage(long window, TimeUnit unit, int buckets) {
+		this(window, unit, buckets, SYSTEM_CLOCK);
+	}
+
+	/**
+	 * Creates a new {@code TimeWindowAverage}.
+	 *
+	 * @param window The duration of the window.
+	 * @param unit The unit of {@code window}.
+	 * @param buckets The number of buckets dividing the window.
+	 * @param clock The clock giving the current time in nanoseconds.
+	 * @throws IllegalArgumentException if {@code buckets <= 0} or if the window is shorter than
+	 *         one nanosecond per bucket.
+	 */
+	public TimeWindowAverage(long window, TimeUnit unit, int buckets, LongSupplier clock) {
+		if (buckets <= 0) {
+			throw new IllegalArgumentException("buckets must be positive.");
+		}// else
+		bucketNanos = unit.toNanos(window) / buckets;
+		if (bucketNanos <= 0) {
+			throw new IllegalArgumentException("The window is too short for " + buckets + " buckets.");
+		}// else
+		this.clock = clock;
+		sums = new double[buckets];
+		counts = new long[buckets];
+		current = Math.floorDiv(clock.getAsLong(), bucketNanos);
+	}
+
+	/**
+	 * Returns the average of the values added during the window.
+	 *
+	 * @return the average of the values, {@code 0} if no value was added during the window.
+	 */
+	public synchronized double get() {
+		rotate();
+		return count == 0 ? 0.0 : sum / count;
+	}
+
+	/**
+	 * Creates the summary of the values added during the window, which may be merged with the
+	 * summaries of other averages.
+	 * <p>
+	 * The window of the summary is {@code 0}, the values not being bounded by a number.
+	 *
+	 * @return the summary of the values added during the window.
+	 */
+	public synchronized AverageSummary summary() {
+		rotate();
+		return new AverageSummary(count, sum, 0.0, 0);
+	}
+
+	/**
+	 * Returns the number of values added during the window.
+	 *
+	 * @return the number of values added during the window.
+	 */
+	public synchronized long getCount() {
+		rotate();
+		return count;
+	}
+
+	/**
+	 * Returns the duration of the window, rounded down to a multiple of the bucket duration.
+	 *
+	 * @param unit The unit of the returned duration.
+	 * @return the duration of the window in the given unit.
+	 */
+	public long getWindow(TimeUnit unit) {
+		return unit.convert(bucketNanos * sums.length, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Returns the number of buckets dividing the window.
+	 *
+	 * @return the number of buckets.
+	 */
+	public int getBucketCount() {
+		return sums.length;
+	}
+
+	/**
+	 * Adds a new value in this {@code TimeWindowAverage}.
+	 *
+	 * @param value The value to add.
+	 */
+	public synchronized void add(double value) {
+		rotate();
+		final int index = (int) Math.floorMod(current, (long) sums.length);
+		sums[index] += value;
+		counts[index]++;
+		sum += value;
+		count++;
+	}
+
+	/**
+	 * Clears the buckets which time slice is over.
+	 * <p>
+	 * The totals are recomputed from the buckets to avoid accumulating rounding errors.
+	 */
+	private void rotate() {
+		final long bucket = Math.floorDiv(clock.getAsLong(), bucketNanos);
+		if (bucket <= current) {
+			// Also ignores a clock going backwards
+			return;
+		}// else
+		final int length = sums.length;
+		final long expired = Math.min(bucket - current, length);
+		for (long i = 1; i <= expired; i++) {
+			final int index = (int) Math.floorMod(current + i, (long) length);
+			sums[index] = 0.0;
+			counts[index] = 0;
+		}
+		current = bucket;
+		sum = 0.0;
+		count = 0;
+		for (int i = 0; i < length; i++) {
+			sum += sums[i];
+			count += counts[i];
+		}
+	}
+
+	/**
+	 * Reset this {@code TimeWindowAverage} to {@code 0} and delete all the previous added values.
+	 */
+	public synchronized void reset() {
+		for (int i = 0; i < sums.length; i++) {
+			sums[i] = 0.0;
+			counts[i] = 0;
+		}
+		sum = 0.0;
+		count = 0;
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		// The current bucket of another clock is meaningless
+		clock = SYSTEM_CLOCK;
+		current = Math.floorDiv(clock.getAsLong(), bucketNanos);
+	}
+
+	@Override
+	public String toString() {
+		return String.valueOf(get());
+	}
+}
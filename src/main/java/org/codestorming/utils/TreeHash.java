@@ -0,0 +1,454 @@
+/*
+ * Copyright (c) 2012-2017 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A {@code TreeHash} is the Merkle tree hash of some content split in chunks of a fixed size, the
+ * chunks being hashed in parallel.
+ * <p>
+ * The tree is the one of RFC 6962 (Certificate Transparency), {@code H} being the digest
+ * algorithm:
+ * <ul>
+ * <li>the hash of a chunk (<em>leaf</em>) is {@code H(0x00 || chunk)};</li>
+ * <li>the hash of {@code n > 1} leaves is {@code H(0x01 || left || right)}, {@code left} being
+ * the hash of the first {@code k} leaves, {@code k} the largest power of two lower than
+ * {@code n}, and {@code right} the hash of the others;</li>
+ * <li>the hash of an empty content is {@code H()}.</li>
+ * </ul>
+ * The leaf hashes are kept, so that two versions of a content can be compared chunk by chunk with
+ * {@link #mismatchingChunks(TreeHash)} and a single chunk verified with
+ * {@link #verifyChunk(int, byte[], int, int)}.
+ * <p>
+ * {@code TreeHash} is non-mutable.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ * @see Hash
+ */
+public final class TreeHash {
+
+	/**
+	 * The default size of the chunks: 4 MiB.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+	/**
+	 * The maximum size of the chunks: 1 GiB.
+	 */
+	public static final int MAX_CHUNK_SIZE = 1 << 30;
+
+	/**
+	 * The maximum size of a memory-mapped region hashed by a single task.
+	 */
+	private static final long REGION_SIZE = 64L * 1024 * 1024;
+
+	private static final byte LEAF_PREFIX = 0x00;
+
+	private static final byte NODE_PREFIX = 0x01;
+
+	/**
+	 * Computes the SHA-256 tree hash of the given file with chunks of {@value #DEFAULT_CHUNK_SIZE}
+	 * bytes, in the common {@link ForkJoinPool}.
+	 *
+	 * @param file The file to hash.
+	 * @return the tree hash of the file.
+	 * @throws NoSuchAlgorithmException if no Provider supports a MessageDigestSpi
+	 *         implementation for the SHA-256 algorithm.
+	 * @throws IOException if an I/O error occurs while reading the file.
+	 */
+	public static TreeHash sha256(Path file) throws NoSuchAlgorithmException, IOException {
+		return compute(file, "SHA-256", DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Computes the tree hash of the given file, memory-mapping it by regions hashed in parallel.
+	 *
+	 * @param file The file to hash.
+	 * @param algorithm The name of the digest algorithm, e.g. {@code "SHA-256"}.
+	 * @param chunkSize The size of the chunks.
+	 * @param pool The pool in which to hash the chunks.
+	 * @return the tree hash of the file.
+	 * @throws NoSuchAlgorithmException if no Provider supports a MessageDigestSpi
+	 *         implementation for the given algorithm.
+	 * @throws IOException if an I/O error occurs while reading the file.
+	 * @throws IllegalArgumentException if {@code chunkSize} is not between {@code 1} and
+	 *         {@link #MAX_CHUNK_SIZE}.
+	 */
+	public static TreeHash compute(Path file, String algorithm, int chunkSize, ForkJoinPool pool)
+			throws NoSuchAlgorithmException, IOException {
+		checkChunkSize(chunkSize);
+		final Hasher hasher = Hasher.shared(algorithm);
+		try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			final Content content = new Content() {
+				@Override
+				public ByteBuffer region(long position, int length) throws IOException {
+					return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+				}
+			};
+			return compute(hasher, content, channel.size(), chunkSize, pool);
+		}
+	}
+
+	/**
+	 * Computes the tree hash of the given bytes.
+	 *
+	 * @param src The bytes to hash.
+	 * @param algorithm The name of the digest algorithm, e.g. {@code "SHA-256"}.
+	 * @param chunkSize The size of the chunks.
+	 * @param pool The pool in which to hash the chunks.
+	 * @return the tree hash of the bytes.
+	 * @throws NoSuchAlgorithmException if no Provider supports a MessageDigestSpi
+	 *         implementation for the given algorithm.
+	 * @throws IllegalArgumentException if {@code chunkSize} is not between {@code 1} and
+	 *         {@link #MAX_CHUNK_SIZE}.
+	 */
+	public static TreeHash compute(final byte[] src, String algorithm, int chunkSize, ForkJoinPool pool)
+			throws NoSuchAlgorithmException {
+		checkChunkSize(chunkSize);
+		final Content content = new Content() {
+			@Override
+			public ByteBuffer region(long position, int length) {
+				return ByteBuffer.wrap(src, (int) position, length);
+			}
+		};
+		try {
+			return compute(Hasher.shared(algorithm), content, src.length, chunkSize, pool);
+		} catch (IOException e) {
+			// Cannot happen, the content is in memory
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void checkChunkSize(int chunkSize) {
+		if (chunkSize <= 0 || chunkSize > MAX_CHUNK_SIZE) {
+			throw new IllegalArgumentException("Invalid chunk size : " + chunkSize);
+		}
+	}
+
+	private static TreeHash compute(Hasher hasher, Content content, long size, int chunkSize, ForkJoinPool pool)
+			throws IOException {
+		final long chunks = (size + chunkSize - 1) / chunkSize;
+		final int digestLength = hasher.getDigestLength();
+		if (digestLength == 0 || chunks * digestLength > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many chunks or unknown digest length.");
+		}// else
+		final byte[] leaves = new byte[(int) chunks * digestLength];
+		if (chunks > 0) {
+			// At least one chunk per task, as many as fit in a region
+			final int chunksPerTask = (int) Math.max(1, REGION_SIZE / chunkSize);
+			try {
+				pool.invoke(new LeafTask(hasher, content, size, chunkSize, leaves, 0, (int) chunks, chunksPerTask));
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+		}
+		return new TreeHash(hasher, size, chunkSize, leaves, root(hasher, leaves, 0, (int) chunks));
+	}
+
+	/**
+	 * Computes the hash of the given leaves.
+	 */
+	private static byte[] root(Hasher hasher, byte[] leaves, int first, int count) {
+		final int length = hasher.getDigestLength();
+		if (count == 0) {
+			return hasher.hash(leaves, 0, 0);
+		}// else
+		if (count == 1) {
+			return Arrays.copyOfRange(leaves, first * length, (first + 1) * length);
+		}// else
+		final int k = Integer.highestOneBit(count - 1);
+		final byte[] left = root(hasher, leaves, first, k);
+		final byte[] right = root(hasher, leaves, first + k, count - k);
+		final MessageDigest digest = hasher.acquire();
+		try {
+			digest.update(NODE_PREFIX);
+			digest.update(left);
+			digest.update(right);
+			return digest.digest();
+		} finally {
+			hasher.release(digest);
+		}
+	}
+
+	/**
+	 * Computes the leaf hash of the given chunk.
+	 *
+	 * @param algorithm The name of the digest algorithm, e.g. {@code "SHA-256"}.
+	 * @param chunk The array containing the chunk.
+	 * @param offset The index of the first byte of the chunk.
+	 * @param length The size of the chunk.
+	 * @return the leaf hash of the chunk.
+	 * @throws NoSuchAlgorithmException if no Provider supports a MessageDigestSpi
+	 *         implementation for the given algorithm.
+	 * @throws IndexOutOfBoundsException if the range is out of the array's bounds.
+	 */
+	public static byte[] leafHash(String algorithm, byte[] chunk, int offset, int length)
+			throws NoSuchAlgorithmException {
+		Bytes.checkRange(chunk.length, offset, length);
+		final Hasher hasher = Hasher.shared(algorithm);
+		final MessageDigest digest = hasher.acquire();
+		try {
+			digest.update(LEAF_PREFIX);
+			digest.update(chunk, offset, length);
+			return digest.digest();
+		} finally {
+			hasher.release(digest);
+		}
+	}
+
+	private final Hasher hasher;
+
+	private final long size;
+
+	private final int chunkSize;
+
+	/**
+	 * The leaf hashes, one after the other.
+	 */
+	private final byte[] leaves;
+
+	private final byte[] root;
+
+	private TreeHash(Hasher hasher, long size, int chunkSize, byte[] leaves, byte[] root) {
+		this.hasher = hasher;
+		this.size = size;
+		this.chunkSize = chunkSize;
+		this.leaves = leaves;
+		this.root = root;
+	}
+
+	/**
+	 * Returns the name of the digest algorithm.
+	 *
+	 * @return the name of the digest algorithm.
+	 */
+	public String getAlgorithm() {
+		return hasher.getAlgorithm();
+	}
+
+	/**
+	 * Returns the size of the hashed content.
+	 *
+	 * @return the size of the hashed content.
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns the size of the chunks, the last chunk being possibly smaller.
+	 *
+	 * @return the size of the chunks.
+	 */
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	/**
+	 * Returns the number of chunks.
+	 *
+	 * @return the number of chunks.
+	 */
+	public int getChunkCount() {
+		return leaves.length / hasher.getDigestLength();
+	}
+
+	/**
+	 * Returns the root hash of the tree.
+	 *
+	 * @return the root hash of the tree.
+	 */
+	public byte[] getRoot() {
+		return root.clone();
+	}
+
+	/**
+	 * Returns the leaf hash of the given chunk.
+	 *
+	 * @param chunk The index of the chunk.
+	 * @return the leaf hash of the chunk.
+	 * @throws IndexOutOfBoundsException if the chunk does not exist.
+	 */
+	public byte[] getLeaf(int chunk) {
+		final int length = hasher.getDigestLength();
+		Bytes.checkRange(getChunkCount(), chunk, 1);
+		return Arrays.copyOfRange(leaves, chunk * length, (chunk + 1) * length);
+	}
+
+	/**
+	 * Indicates if the given chunk has the leaf hash of the chunk at the same index in this tree.
+	 *
+	 * @param chunk The index of the chunk.
+	 * @param src The array containing the chunk.
+	 * @param offset The index of the first byte of the chunk.
+	 * @param length The size of the chunk.
+	 * @return {@code true} if the chunk has the expected leaf hash;<br> {@code false} otherwise.
+	 * @throws IndexOutOfBoundsException if the chunk does not exist or if the range is out of the
+	 *         array's bounds.
+	 */
+	public boolean verifyChunk(int chunk, byte[] src, int offset, int length) {
+		final byte[] expected = getLeaf(chunk);
+		Bytes.checkRange(src.length, offset, length);
+		final MessageDigest digest = hasher.acquire();
+		try {
+			digest.update(LEAF_PREFIX);
+			digest.update(src, offset, length);
+			return MessageDigest.isEqual(digest.digest(), expected);
+		} finally {
+			hasher.release(digest);
+		}
+	}
+
+	/**
+	 * Returns the indexes of the chunks which leaf hash differs from the one of the given tree,
+	 * including the chunks existing in only one of the trees.
+	 *
+	 * @param other The tree to compare with.
+	 * @return the indexes of the differing chunks, in increasing order.
+	 * @throws IllegalArgumentException if the trees do not have the same algorithm and chunk size.
+	 */
+	public int[] mismatchingChunks(TreeHash other) {
+		if (!getAlgorithm().equals(other.getAlgorithm()) || chunkSize != other.chunkSize) {
+			throw new IllegalArgumentException("The trees do not have the same algorithm and chunk size.");
+		}// else
+		final int length = hasher.getDigestLength();
+		final int common = Math.min(getChunkCount(), other.getChunkCount());
+		final int total = Math.max(getChunkCount(), other.getChunkCount());
+		int[] mismatches = new int[total - common];
+		int count = 0;
+		for (int chunk = 0; chunk < common; chunk++) {
+			if (!Bytes.equals(leaves, chunk * length, length, other.leaves, chunk * length, length)) {
+				if (count == mismatches.length) {
+					mismatches = Arrays.copyOf(mismatches, Math.max(8, count * 2));
+				}
+				mismatches[count++] = chunk;
+			}
+		}
+		mismatches = Arrays.copyOf(mismatches, count + total - common);
+		for (int chunk = common; chunk < total; chunk++) {
+			mismatches[count++] = chunk;
+		}
+		return mismatches;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
+		if (!(obj instanceof TreeHash)) {
+			return false;
+		}
+		TreeHash other = (TreeHash) obj;
+		return size == other.size && chunkSize == other.chunkSize && getAlgorithm().equals(other.getAlgorithm())
+				&& Arrays.equals(root, other.root);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(root);
+	}
+
+	@Override
+	public String toString() {
+		return getAlgorithm() + " tree[" + Bytes.bytesToHexString(root, 0, root.length, true) + ", chunks="
+				+ getChunkCount() + ']';
+	}
+
+	/**
+	 * The content to hash, accessed by regions.
+	 */
+	private interface Content {
+
+		ByteBuffer region(long position, int length) throws IOException;
+	}
+
+	/**
+	 * Hashes a range of chunks, splitting it until it fits in a region.
+	 */
+	private static final class LeafTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 3718229310517207431L;
+
+		private final Hasher hasher;
+
+		private final Content content;
+
+		private final long size;
+
+		private final int chunkSize;
+
+		private final byte[] leaves;
+
+		private final int first;
+
+		private final int count;
+
+		private final int chunksPerTask;
+
+		LeafTask(Hasher hasher, Content content, long size, int chunkSize, byte[] leaves, int first, int count,
+				int chunksPerTask) {
+			this.hasher = hasher;
+			this.content = content;
+			this.size = size;
+			this.chunkSize = chunkSize;
+			this.leaves = leaves;
+			this.first = first;
+			this.count = count;
+			this.chunksPerTask = chunksPerTask;
+		}
+
+		@Override
+		protected void compute() {
+			if (count > chunksPerTask) {
+				final int half = count >>> 1;
+				invokeAll(new LeafTask(hasher, content, size, chunkSize, leaves, first, half, chunksPerTask),
+						new LeafTask(hasher, content, size, chunkSize, leaves, first + half, count - half,
+								chunksPerTask));
+				return;
+			}// else
+			final long position = (long) first * chunkSize;
+			final int length = (int) Math.min((long) count * chunkSize, size - position);
+			final ByteBuffer region;
+			try {
+				region = content.region(position, length);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			final int digestLength = hasher.getDigestLength();
+			final MessageDigest digest = hasher.acquire();
+			try {
+				final int start = region.position();
+				for (int i = 0; i < count; i++) {
+					final int chunkStart = start + i * chunkSize;
+					region.limit(chunkStart + Math.min(chunkSize, length - i * chunkSize)).position(chunkStart);
+					digest.update(LEAF_PREFIX);
+					digest.update(region);
+					Hasher.digestInto(digest, leaves, (first + i) * digestLength);
+				}
+			} finally {
+				hasher.release(digest);
+			}
+		}
+	}
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2012-2017 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.utils;
+
+import java.io.Serializable;
+
+/**
+ * A {@code WindowStats} allows to compute the mean, the variance, the minimum and the maximum of
+ * a specific number of values.
+ * <p>
+ * Like {@link Average}, when the maximum size is reached, new values will erase the oldest one.
+ * The mean and the variance are updated incrementally (Welford's algorithm, with the removal of
+ * the erased value) and recomputed entirely once every {@code size} additions to bound the
+ * rounding drift. The minimum and the maximum are kept with monotonic queues of the values. Adding
+ * a value is then in amortized {@code O(1)} whatever the size.
+ * <p>
+ * {@code WindowStats} is <em>thread-safe</em> and all its methods are <em>synchronized</em> so
+ * that the statistics are consistent with each other.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ * @see Average
+ */
+public class WindowStats implements Serializable {
+
+	private static final long serialVersionUID = -4176802853304720551L;
+
+	/**
+	 * The values used for computing the statistics.
+	 */
+	private final double[] values;
+
+	/**
+	 * The number of values.
+	 */
+	private int size;
+
+	/**
+	 * The index of the older value.
+	 */
+	private int older;
+
+	/**
+	 * The number of values added since the creation or the last reset.
+	 */
+	private long added;
+
+	/**
+	 * The number of additions since the last exact computation.
+	 */
+	private int updates;
+
+	private double mean;
+
+	/**
+	 * The sum of the squared differences from the mean.
+	 */
+	private double m2;
+
+	/**
+	 * The positions of the candidate minimums, in increasing order of values.
+	 */
+	private final MonotonicQueue minQueue;
+
+	/**
+	 * The positions of the candidate maximums, in decreasing order of values.
+	 */
+	private final MonotonicQueue maxQueue;
+
+	/**
+	 * Creates a new {@code WindowStats}.
+	 *
+	 * @param size The maximum number of elements on which to compute the statistics.
+	 */
+	public WindowStats(int size) {
+		if (size <= 0) {
+			throw new IllegalArgumentException();
+		}// else
+		values = new double[size];
+		minQueue = new MonotonicQueue(size, new ValueOrder(true));
+		maxQueue = new MonotonicQueue(size, new ValueOrder(false));
+	}
+
+	/**
+	 * Adds a new value in this {@code WindowStats} that will replace the oldest value.
+	 *
+	 * @param value The value to add.
+	 */
+	public synchronized void add(double value) {
+		if (size < values.length) {
+			values[size++] = value;
+			final double delta = value - mean;
+			mean += delta / size;
+			m2 += delta * (value - mean);
+		} else {
+			final double oldest = values[older];
+			values[older++] = value;
+			if (older == size) {
+				older = 0;
+			}
+			final double oldMean = mean;
+			mean += (value - oldest) / size;
+			m2 += (value - oldest) * (value - mean + oldest - oldMean);
+		}
+		if (++updates >= values.length) {
+			recompute();
+		}
+		// The erased value must be evicted before comparing the new one with the others
+		final long position = added++;
+		final long oldestPosition = added - size;
+		minQueue.evict(oldestPosition);
+		minQueue.push(position);
+		maxQueue.evict(oldestPosition);
+		maxQueue.push(position);
+	}
+
+	/**
+	 * Recomputes the mean and the variance from the values.
+	 */
+	private void recompute() {
+		updates = 0;
+		double sum = 0.0;
+		for (int i = 0; i < size; i++) {
+			sum += values[i];
+		}
+		mean = sum / size;
+		double squares = 0.0;
+		for (int i = 0; i < size; i++) {
+			final double delta = values[i] - mean;
+			squares += delta * delta;
+		}
+		m2 = squares;
+	}
+
+	/**
+	 * Returns the number of values.
+	 *
+	 * @return the number of values.
+	 */
+	public synchronized int getCount() {
+		return size;
+	}
+
+	/**
+	 * Returns the mean of the values.
+	 *
+	 * @return the mean of the values, {@code 0} if there is no value.
+	 */
+	public synchronized double getMean() {
+		return mean;
+	}
+
+	/**
+	 * Returns the population variance of the values.
+	 *
+	 * @return the variance of the values, {@code 0} if there is no value.
+	 */
+	public synchronized double getVariance() {
+		return size == 0 ? 0.0 : Math.max(0.0, m2 / size);
+	}
+
+	/**
+	 * Returns the sample variance of the values, that is with Bessel's correction.
+	 *
+	 * @return the sample variance of the values, {@code 0} if there is less than two values.
+	 */
+	public synchronized double getSampleVariance() {
+		return size < 2 ? 0.0 : Math.max(0.0, m2 / (size - 1));
+	}
+
+	/**
+	 * Returns the population standard deviation of the values.
+	 *
+	 * @return the standard deviation of the values, {@code 0} if there is no value.
+	 */
+	public synchronized double getStandardDeviation() {
+		return Math.sqrt(getVariance());
+	}
+
+	/**
+	 * Returns the minimum of the values.
+	 *
+	 * @return the minimum of the values, {@code 0} if there is no value.
+	 */
+	public synchronized double getMin() {
+		return minQueue.isEmpty() ? 0.0 : valueAt(minQueue.first());
+	}
+
+	/**
+	 * Returns the maximum of the values.
+	 *
+	 * @return the maximum of the values, {@code 0} if there is no value.
+	 */
+	public synchronized double getMax() {
+		return maxQueue.isEmpty() ? 0.0 : valueAt(maxQueue.first());
+	}
+
+	private double valueAt(long position) {
+		return values[(int) (position % values.length)];
+	}
+
+	/**
+	 * Reset this {@code WindowStats} and delete all the previous added values.
+	 */
+	public synchronized void reset() {
+		size = 0;
+		older = 0;
+		added = 0;
+		updates = 0;
+		mean = 0.0;
+		m2 = 0.0;
+		minQueue.clear();
+		maxQueue.clear();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "[count=" + size + ", mean=" + mean + ", stddev=" + getStandardDeviation() + ", min=" + getMin()
+				+ ", max=" + getMax() + ']';
+	}
+
+	/**
+	 * Orders the positions by the values of the window, increasingly for the minimum and
+	 * decreasingly for the maximum.
+	 */
+	private final class ValueOrder implements MonotonicQueue.Order {
+
+		private static final long serialVersionUID = -6230771580187541946L;
+
+		private final boolean increasing;
+
+		ValueOrder(boolean increasing) {
+			this.increasing = increasing;
+		}
+
+		@Override
+		public boolean isBefore(long position, long newPosition) {
+			final double value = valueAt(position);
+			final double newValue = valueAt(newPosition);
+			return increasing ? value < newValue : value > newValue;
+		}
+	}
+}
@@ -0,0 +1,339 @@
+/*
+ * Copyright (c) 2012-2017 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.utils.interval;
+
+import org.codestorming.utils.interval.FragmentedInterval.IntervalMapKey;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * An {@code ApproximateFragmentedInterval} is a <em>mutable</em> {@link FragmentedInterval} whose number of fragments
+ * is bounded by merging close fragments together.
+ * <p>
+ * Two kinds of merge are made when adding intervals:
+ * <ul>
+ * <li>fragments separated by a gap of at most {@code maxGap} points are merged immediately;</li>
+ * <li>when the number of fragments exceeds {@code maxFragments}, the smallest gaps are closed until the budget is
+ * respected again.</li>
+ * </ul>
+ * The points of the closed gaps were never added, the interval is then an <em>over-approximation</em> of the added
+ * intervals. The number of such points is reported by {@link #getOverCoverage()}.
+ * <p>
+ * {@code ApproximateFragmentedInterval} is <em>not thread-safe</em>.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ * @see MutableFragmentedInterval
+ */
+public class ApproximateFragmentedInterval {
+
+	private final FragmentedInterval delegate;
+
+	private final long maxGap;
+
+	private final int maxFragments;
+
+	/**
+	 * The gaps between the fragments, smallest first.
+	 * <p>
+	 * Gaps are not removed when they are filled by an added interval, they are discarded when polled.
+	 */
+	private final PriorityQueue<Gap> gaps = new PriorityQueue<>();
+
+	/**
+	 * The filled points which were not added since.
+	 */
+	private final FragmentedInterval filled = new FragmentedInterval();
+
+	private long overCoverage;
+
+	/**
+	 * Creates a new {@code ApproximateFragmentedInterval} without fragments budget.
+	 *
+	 * @param maxGap The maximum size of a gap to fill between two fragments ({@code 0} to fill no gap).
+	 * @throws IllegalArgumentException if {@code maxGap < 0}.
+	 */
+	public ApproximateFragmentedInterval(long maxGap) {
+		this(maxGap, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Creates a new {@code ApproximateFragmentedInterval}.
+	 *
+	 * @param maxGap The maximum size of a gap to fill between two fragments ({@code 0} to fill no gap).
+	 * @param maxFragments The maximum number of fragments.
+	 * @throws IllegalArgumentException if {@code maxGap < 0} or {@code maxFragments < 1}.
+	 */
+	public ApproximateFragmentedInterval(long maxGap, int maxFragments) {
+		if (maxGap < 0) {
+			throw new IllegalArgumentException("maxGap can't be negative.");
+		}// else
+		if (maxFragments < 1) {
+			throw new IllegalArgumentException("maxFragments must be at least 1.");
+		}// else
+		this.maxGap = maxGap;
+		this.maxFragments = maxFragments;
+		delegate = new FragmentedInterval();
+	}
+
+	/**
+	 * Add the given {@link Interval interval} to this {@code ApproximateFragmentedInterval}.<br> The resulting fragment
+	 * is merged with its neighbours if they are close enough, then the smallest gaps are closed if the fragments budget
+	 * is exceeded.
+	 *
+	 * @param interval The interval to add.
+	 * @return {@code true} if the addition of the interval modifies this {@code ApproximateFragmentedInterval};<br>
+	 * {@code false} otherwise.
+	 */
+	public boolean addInterval(Interval interval) {
+		unfill(interval);
+		if (!delegate.addInterval(interval)) {
+			return false;
+		}// else
+		IntervalMapKey fragment = fragmentOf(interval.getInferiorEndPoint());
+		final IntervalMapKey before = delegate.intervals.lower(fragment);
+		if (before != null && !recordGap(before, fragment)) {
+			fill(before.interval.getSuperiorEndPoint() + 1, fragment.interval.getInferiorEndPoint() - 1);
+			fragment = fragmentOf(interval.getInferiorEndPoint());
+		}
+		final IntervalMapKey after = delegate.intervals.higher(fragment);
+		if (after != null && !recordGap(fragment, after)) {
+			fill(fragment.interval.getSuperiorEndPoint() + 1, after.interval.getInferiorEndPoint() - 1);
+		}
+		enforceBudget();
+		return true;
+	}
+
+	/**
+	 * Add the given {@link FragmentedInterval} to this {@code ApproximateFragmentedInterval}.
+	 *
+	 * @param fragmentedInterval The interval to add.
+	 * @return {@code true} if the addition of the interval modifies this {@code ApproximateFragmentedInterval};<br>
+	 * {@code false} otherwise.
+	 */
+	public boolean addInterval(FragmentedInterval fragmentedInterval) {
+		boolean modified = false;
+		for (IntervalMapKey intervalKey : fragmentedInterval.intervals) {
+			modified |= addInterval(intervalKey.interval);
+		}
+		return modified;
+	}
+
+	/**
+	 * Records the gap between the two given adjacent fragments if it is too large to be filled immediately.
+	 *
+	 * @return {@code true} if the gap has been recorded;<br> {@code false} if it must be filled.
+	 */
+	private boolean recordGap(IntervalMapKey before, IntervalMapKey after) {
+		final long lo = before.interval.getSuperiorEndPoint() + 1;
+		final long hi = after.interval.getInferiorEndPoint() - 1;
+		final long size = gapSize(lo, hi);
+		if (size <= maxGap) {
+			return false;
+		}// else
+		if (maxFragments != Integer.MAX_VALUE) {
+			gaps.add(new Gap(lo, hi, size));
+			if (gaps.size() > 2 * delegate.intervals.size() + 16) {
+				rebuildGaps();
+			}
+		}
+		return true;
+	}
+
+	private void enforceBudget() {
+		while (delegate.intervals.size() > maxFragments) {
+			final Gap gap = gaps.poll();
+			if (isGap(gap.lo, gap.hi)) {
+				fill(gap.lo, gap.hi);
+			}
+		}
+	}
+
+	private void fill(long lo, long hi) {
+		final Interval gap = new Interval(lo, hi);
+		delegate.addInterval(gap);
+		filled.addInterval(gap);
+		final long size = gapSize(lo, hi);
+		overCoverage = size > Long.MAX_VALUE - overCoverage ? Long.MAX_VALUE : overCoverage + size;
+	}
+
+	/**
+	 * Removes the points of the given added interval from the filled points.
+	 */
+	private void unfill(Interval interval) {
+		if (interval.isEmpty()) {
+			return;
+		}// else
+		final long lo = interval.getInferiorEndPoint();
+		final long hi = interval.getSuperiorEndPoint();
+		final IntervalMapKey first = filled.intervals.floor(new IntervalMapKey(new Interval(lo, lo)));
+		final List<Interval> overlapping = new ArrayList<>();
+		for (IntervalMapKey key : first != null ? filled.intervals.tailSet(first, true) : filled.intervals) {
+			final Interval fragment = key.interval;
+			if (fragment.isEmpty()) {
+				continue;
+			}// else
+			if (fragment.getInferiorEndPoint() > hi) {
+				break;
+			}// else
+			if (fragment.getSuperiorEndPoint() >= lo) {
+				overlapping.add(fragment);
+			}
+		}
+		for (Interval fragment : overlapping) {
+			filled.remove(new IntervalMapKey(fragment));
+			if (fragment.getInferiorEndPoint() < lo) {
+				filled.add(new IntervalMapKey(new Interval(fragment.getInferiorEndPoint(), lo - 1)));
+			}
+			if (fragment.getSuperiorEndPoint() > hi) {
+				filled.add(new IntervalMapKey(new Interval(hi + 1, fragment.getSuperiorEndPoint())));
+			}
+			if (overCoverage != Long.MAX_VALUE) {
+				final Interval added = fragment.intersection(interval);
+				overCoverage -= gapSize(added.getInferiorEndPoint(), added.getSuperiorEndPoint());
+			}
+		}
+	}
+
+	/**
+	 * Indicates if the given points are exactly the ones missing between two fragments.
+	 */
+	private boolean isGap(long lo, long hi) {
+		final IntervalMapKey before = delegate.intervals.floor(new IntervalMapKey(new Interval(lo, lo)));
+		if (before == null || before.interval.getSuperiorEndPoint() != lo - 1) {
+			return false;
+		}// else
+		final IntervalMapKey after = delegate.intervals.higher(before);
+		return after != null && after.interval.getInferiorEndPoint() == hi + 1;
+	}
+
+	/**
+	 * Discards the filled gaps.
+	 */
+	private void rebuildGaps() {
+		gaps.clear();
+		IntervalMapKey previous = null;
+		for (IntervalMapKey key : delegate.intervals) {
+			if (previous != null) {
+				final long lo = previous.interval.getSuperiorEndPoint() + 1;
+				final long hi = key.interval.getInferiorEndPoint() - 1;
+				gaps.add(new Gap(lo, hi, gapSize(lo, hi)));
+			}
+			previous = key;
+		}
+	}
+
+	private IntervalMapKey fragmentOf(long point) {
+		return delegate.intervals.floor(new IntervalMapKey(new Interval(point, point)));
+	}
+
+	private static long gapSize(long lo, long hi) {
+		final long size = hi - lo + 1;
+		// Overflows only for gaps larger than Long.MAX_VALUE
+		return size > 0 ? size : Long.MAX_VALUE;
+	}
+
+	/**
+	 * Returns the number of points covered by this {@code ApproximateFragmentedInterval} which were never added, that
+	 * is the total size of the filled gaps minus the points of these gaps added afterwards.
+	 * <p>
+	 * The value saturates at {@link Long#MAX_VALUE}, and then stays there.
+	 *
+	 * @return the number of points covered but never added.
+	 */
+	public long getOverCoverage() {
+		return overCoverage;
+	}
+
+	/**
+	 * Returns the number of fragments of this {@code ApproximateFragmentedInterval}.
+	 *
+	 * @return the number of fragments.
+	 */
+	public int getFragmentCount() {
+		return delegate.isEmpty() ? 0 : delegate.intervals.size();
+	}
+
+	public long getMaxGap() {
+		return maxGap;
+	}
+
+	public int getMaxFragments() {
+		return maxFragments;
+	}
+
+	public boolean isContiguous() {
+		return delegate.isContiguous();
+	}
+
+	public boolean isEmpty() {
+		return delegate.isEmpty();
+	}
+
+	public List<Interval> getIntervals() {
+		return delegate.getIntervals();
+	}
+
+	public boolean contains(long point) {
+		return delegate.contains(point);
+	}
+
+	public boolean contains(Interval interval) {
+		return delegate.contains(interval);
+	}
+
+	public boolean contains(FragmentedInterval interval) {
+		return delegate.contains(interval);
+	}
+
+	public boolean intersect(Interval interval) {
+		return delegate.intersect(interval);
+	}
+
+	@Override
+	public String toString() {
+		return delegate.toString();
+	}
+
+	/**
+	 * Creates a <em>non-mutable</em> {@link FragmentedInterval} from this {@code ApproximateFragmentedInterval}.
+	 *
+	 * @return the corresponding {@link FragmentedInterval}.
+	 */
+	public FragmentedInterval toFragmentedInterval() {
+		return FragmentedInterval.copyOf(delegate);
+	}
+
+	/**
+	 * Missing points between two fragments.
+	 */
+	private static final class Gap implements Comparable<Gap> {
+
+		final long lo;
+
+		final long hi;
+
+		final long size;
+
+		Gap(long lo, long hi, long size) {
+			this.lo = lo;
+			this.hi = hi;
+			this.size = size;
+		}
+
+		@Override
+		public int compareTo(Gap o) {
+			return Long.compare(size, o.size);
+		}
+	}
+}
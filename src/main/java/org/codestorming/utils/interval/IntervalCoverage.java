@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2012-2017 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.utils.interval;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * An {@code IntervalCoverage} counts how many times each point is covered by the added {@link Interval intervals}.
+ * <p>
+ * Adding the interval {@code [a, b]} with a multiplicity {@code m} is recorded as a delta of {@code +m} at the
+ * boundary {@code a} and a delta of {@code -m} at the boundary {@code b + 1}. The <em>depth</em> of a point is then the
+ * sum of the deltas of the boundaries lower or equal to it.
+ * <p>
+ * The boundaries are kept in a balanced search tree (a treap) where each node also holds the sum of the deltas of its
+ * subtree, so that adding, removing and the {@link #depth(long)} queries are in {@code O(log n)}, {@code n} being the
+ * number of distinct boundaries.
+ * <p>
+ * {@code IntervalCoverage} is <em>not thread-safe</em>.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ * @see FragmentedInterval
+ */
+public class IntervalCoverage {
+
+	private Node root;
+
+	private int boundaries;
+
+	private int seed = 0x2545F491;
+
+	/**
+	 * Adds the given {@link Interval} once.
+	 *
+	 * @param interval The interval to add.
+	 */
+	public void add(Interval interval) {
+		add(interval, 1L);
+	}
+
+	/**
+	 * Adds the given {@link Interval} {@code multiplicity} times.
+	 *
+	 * @param interval The interval to add.
+	 * @param multiplicity The number of times the interval is added.
+	 * @throws IllegalArgumentException if {@code multiplicity < 0}.
+	 */
+	public void add(Interval interval, long multiplicity) {
+		if (multiplicity < 0) {
+			throw new IllegalArgumentException("multiplicity can't be negative.");
+		}// else
+		update(interval, multiplicity);
+	}
+
+	/**
+	 * Adds each interval of the given {@link FragmentedInterval} once.
+	 *
+	 * @param interval The intervals to add.
+	 */
+	public void add(FragmentedInterval interval) {
+		for (Interval i : interval.getIntervals()) {
+			update(i, 1L);
+		}
+	}
+
+	/**
+	 * Removes the given {@link Interval} once.
+	 *
+	 * @param interval The interval to remove.
+	 * @see #remove(Interval, long)
+	 */
+	public void remove(Interval interval) {
+		remove(interval, 1L);
+	}
+
+	/**
+	 * Removes the given {@link Interval} {@code multiplicity} times.
+	 * <p>
+	 * <em>The interval must have been added at least {@code multiplicity} times, otherwise the depths become
+	 * meaningless.</em>
+	 *
+	 * @param interval The interval to remove.
+	 * @param multiplicity The number of times the interval is removed.
+	 * @throws IllegalArgumentException if {@code multiplicity < 0}.
+	 */
+	public void remove(Interval interval, long multiplicity) {
+		if (multiplicity < 0) {
+			throw new IllegalArgumentException("multiplicity can't be negative.");
+		}// else
+		update(interval, -multiplicity);
+	}
+
+	private void update(Interval interval, long delta) {
+		if (interval.isEmpty() || delta == 0) {
+			return;
+		}// else
+		addDelta(interval.getInferiorEndPoint(), delta);
+		if (interval.getSuperiorEndPoint() != Long.MAX_VALUE) {
+			addDelta(interval.getSuperiorEndPoint() + 1, -delta);
+		}
+	}
+
+	/**
+	 * Returns the number of times the given point is covered.
+	 *
+	 * @param point The point.
+	 * @return the number of times the given point is covered.
+	 */
+	public long depth(long point) {
+		long depth = 0;
+		Node node = root;
+		while (node != null) {
+			if (node.key <= point) {
+				depth += sum(node.left) + node.delta;
+				node = node.right;
+			} else {
+				node = node.left;
+			}
+		}
+		return depth;
+	}
+
+	/**
+	 * Returns the points covered at least {@code minDepth} times.
+	 *
+	 * @param minDepth The minimal depth.
+	 * @return the {@link FragmentedInterval} of the points covered at least {@code minDepth} times.
+	 * @throws IllegalArgumentException if {@code minDepth < 1}.
+	 */
+	public FragmentedInterval rangesWithDepthAtLeast(long minDepth) {
+		if (minDepth < 1) {
+			throw new IllegalArgumentException("minDepth must be at least 1.");
+		}// else
+		final FragmentedIntervalBuilder builder = new FragmentedIntervalBuilder();
+		final Deque<Node> stack = new ArrayDeque<>();
+		Node node = root;
+		long depth = 0;
+		long start = 0;
+		while (node != null || !stack.isEmpty()) {
+			while (node != null) {
+				stack.push(node);
+				node = node.left;
+			}
+			node = stack.pop();
+			final boolean wasCovered = depth >= minDepth;
+			depth += node.delta;
+			if (!wasCovered && depth >= minDepth) {
+				start = node.key;
+			} else if (wasCovered && depth < minDepth) {
+				builder.addInterval(new Interval(start, node.key - 1));
+			}
+			node = node.right;
+		}
+		if (depth >= minDepth) {
+			builder.addInterval(new Interval(start, Long.MAX_VALUE));
+		}
+		return builder.create();
+	}
+
+	/**
+	 * Indicates if no point is covered.
+	 *
+	 * @return {@code true} if no point is covered;<br> {@code false} otherwise.
+	 */
+	public boolean isEmpty() {
+		return root == null;
+	}
+
+	/**
+	 * Returns the number of distinct boundaries, that is the number of points where the depth changes.
+	 *
+	 * @return the number of distinct boundaries.
+	 */
+	public int getBoundaryCount() {
+		return boundaries;
+	}
+
+	/**
+	 * Removes all the intervals.
+	 */
+	public void clear() {
+		root = null;
+		boundaries = 0;
+	}
+
+	private void addDelta(long key, long delta) {
+		final Node[] lower = split(root, key, false);
+		final Node[] upper = split(lower[1], key, true);
+		Node node = upper[0];
+		if (node == null) {
+			node = new Node(key, delta, nextPriority());
+			boundaries++;
+		} else {
+			node.delta += delta;
+			if (node.delta == 0) {
+				node = null;
+				boundaries--;
+			} else {
+				node.sum = node.delta;
+			}
+		}
+		root = merge(merge(lower[0], node), upper[1]);
+	}
+
+	/**
+	 * Splits the given tree into the nodes whose keys are lower than (or equal to if {@code inclusive}) the given key
+	 * and the others.
+	 */
+	private static Node[] split(Node node, long key, boolean inclusive) {
+		if (node == null) {
+			return new Node[2];
+		}// else
+		final Node[] result;
+		if (node.key < key || inclusive && node.key == key) {
+			result = split(node.right, key, inclusive);
+			node.right = result[0];
+			result[0] = node;
+		} else {
+			result = split(node.left, key, inclusive);
+			node.left = result[1];
+			result[1] = node;
+		}
+		node.sum = node.delta + sum(node.left) + sum(node.right);
+		return result;
+	}
+
+	/**
+	 * Merges two trees, all the keys of {@code left} being lower than the keys of {@code right}.
+	 */
+	private static Node merge(Node left, Node right) {
+		if (left == null) {
+			return right;
+		}// else
+		if (right == null) {
+			return left;
+		}// else
+		if (left.priority > right.priority) {
+			left.right = merge(left.right, right);
+			left.sum = left.delta + sum(left.left) + sum(left.right);
+			return left;
+		}// else
+		right.left = merge(left, right.left);
+		right.sum = right.delta + sum(right.left) + sum(right.right);
+		return right;
+	}
+
+	private static long sum(Node node) {
+		return node == null ? 0 : node.sum;
+	}
+
+	private int nextPriority() {
+		// xorshift
+		int x = seed;
+		x ^= x << 13;
+		x ^= x >>> 17;
+		x ^= x << 5;
+		seed = x;
+		return x;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder builder = new StringBuilder();
+		final Deque<Node> stack = new ArrayDeque<>();
+		Node node = root;
+		long depth = 0;
+		builder.append('{');
+		while (node != null || !stack.isEmpty()) {
+			while (node != null) {
+				stack.push(node);
+				node = node.left;
+			}
+			node = stack.pop();
+			depth += node.delta;
+			if (builder.length() > 1) {
+				builder.append(", ");
+			}
+			builder.append(node.key).append('=').append(depth);
+			node = node.right;
+		}
+		builder.append('}');
+		return builder.toString();
+	}
+
+	private static final class Node {
+
+		final long key;
+
+		final int priority;
+
+		long delta;
+
+		/**
+		 * The sum of the deltas of this node's subtree.
+		 */
+		long sum;
+
+		Node left;
+
+		Node right;
+
+		Node(long key, long delta, int priority) {
+			this.key = key;
+			this.delta = delta;
+			this.sum = delta;
+			this.priority = priority;
+		}
+	}
+}
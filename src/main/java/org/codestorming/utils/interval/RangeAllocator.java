@@ -0,0 +1,395 @@
+/*
+ * Copyright (c) 2012-2017 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.utils.interval;
+
+import org.codestorming.utils.interval.FragmentedInterval.IntervalMapKey;
+
+import java.util.Comparator;
+import java.util.TreeSet;
+
+/**
+ * A {@code RangeAllocator} allocates contiguous ranges of points from a free space represented by a
+ * {@link FragmentedInterval}.
+ * <p>
+ * The free fragments are indexed both by position and by length:
+ * <ul>
+ * <li>by position in a balanced search tree (a treap) where each node holds the maximum length of its subtree, for
+ * the <em>first-fit</em> and <em>aligned</em> allocations;</li>
+ * <li>by length in a sorted set, for the <em>best-fit</em> allocation.</li>
+ * </ul>
+ * First-fit and best-fit allocations are in {@code O(log n)}, {@code n} being the number of free fragments. Freed
+ * ranges are merged with the adjacent free fragments by {@link FragmentedInterval#addInterval(Interval)}.
+ * <p>
+ * {@code RangeAllocator} is <em>not thread-safe</em>.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ * @see FragmentedInterval
+ */
+public class RangeAllocator {
+
+	private static final Comparator<Node> BY_LENGTH = new Comparator<Node>() {
+		@Override
+		public int compare(Node n1, Node n2) {
+			final int comparison = Long.compare(n1.length, n2.length);
+			return comparison != 0 ? comparison : Long.compare(n1.inf, n2.inf);
+		}
+	};
+
+	private final FragmentedInterval freeSpace = new FragmentedInterval();
+
+	private final TreeSet<Node> byLength = new TreeSet<>(BY_LENGTH);
+
+	private Node root;
+
+	private int seed = 0x2545F491;
+
+	/**
+	 * Creates a new {@code RangeAllocator}.
+	 *
+	 * @param freeSpace The initial free space. <em>The given interval is copied.</em>
+	 */
+	public RangeAllocator(FragmentedInterval freeSpace) {
+		for (Interval interval : freeSpace.getIntervals()) {
+			free(interval);
+		}
+	}
+
+	/**
+	 * Creates a new {@code RangeAllocator}.
+	 *
+	 * @param freeSpace The intervals composing the initial free space.
+	 */
+	public RangeAllocator(Interval... freeSpace) {
+		this(new FragmentedInterval(freeSpace));
+	}
+
+	/**
+	 * Allocates the free range of the given length with the lowest position.
+	 *
+	 * @param length The length of the range to allocate.
+	 * @return the allocated range or the <em>empty interval</em> if there is no free range large enough.
+	 * @throws IllegalArgumentException if {@code length < 1}.
+	 */
+	public Interval allocateFirstFit(long length) {
+		checkLength(length);
+		Node node = root;
+		while (node != null && node.maxLength >= length) {
+			if (maxLength(node.left) >= length) {
+				node = node.left;
+			} else if (node.length >= length) {
+				return allocate(node, node.inf, length);
+			} else {
+				node = node.right;
+			}
+		}
+		return Interval.EMPTY;
+	}
+
+	/**
+	 * Allocates the range of the given length from the smallest free fragment large enough, in order to keep the
+	 * largest fragments for the largest allocations.
+	 *
+	 * @param length The length of the range to allocate.
+	 * @return the allocated range or the <em>empty interval</em> if there is no free range large enough.
+	 * @throws IllegalArgumentException if {@code length < 1}.
+	 */
+	public Interval allocateBestFit(long length) {
+		checkLength(length);
+		final Node node = byLength.ceiling(new Node(Long.MIN_VALUE, length));
+		if (node == null) {
+			return Interval.EMPTY;
+		}// else
+		return allocate(node, node.inf, length);
+	}
+
+	/**
+	 * Allocates the free range of the given length with the lowest position which is a multiple of
+	 * {@code alignment}.
+	 * <p>
+	 * The fragments too small for the length are skipped in {@code O(log n)}, the remaining ones are visited in
+	 * ascending order until one can hold an aligned range.
+	 *
+	 * @param length The length of the range to allocate.
+	 * @param alignment The alignment of the range's inferior endpoint.
+	 * @return the allocated range or the <em>empty interval</em> if there is no free range large enough.
+	 * @throws IllegalArgumentException if {@code length < 1} or {@code alignment < 1}.
+	 */
+	public Interval allocateAligned(long length, long alignment) {
+		checkLength(length);
+		if (alignment < 1) {
+			throw new IllegalArgumentException("alignment must be at least 1.");
+		}// else
+		final Node node = findAligned(root, length, alignment);
+		if (node == null) {
+			return Interval.EMPTY;
+		}// else
+		return allocate(node, node.inf + alignmentOffset(node.inf, alignment), length);
+	}
+
+	private static Node findAligned(Node node, long length, long alignment) {
+		if (node == null || node.maxLength < length) {
+			return null;
+		}// else
+		Node found = findAligned(node.left, length, alignment);
+		if (found == null) {
+			if (node.length >= length && alignmentOffset(node.inf, alignment) <= node.length - length) {
+				found = node;
+			} else {
+				found = findAligned(node.right, length, alignment);
+			}
+		}
+		return found;
+	}
+
+	private static long alignmentOffset(long position, long alignment) {
+		final long remainder = Math.floorMod(position, alignment);
+		return remainder == 0 ? 0 : alignment - remainder;
+	}
+
+	/**
+	 * Allocates {@code length} points from {@code start} in the given free fragment.
+	 */
+	private Interval allocate(Node node, long start, long length) {
+		final Interval allocated = new Interval(start, start + length - 1);
+		unindex(node);
+		freeSpace.internalExclude(allocated);
+		if (start > node.inf) {
+			index(node.inf, start - 1);
+		}
+		if (allocated.getSuperiorEndPoint() < node.sup) {
+			index(allocated.getSuperiorEndPoint() + 1, node.sup);
+		}
+		return allocated;
+	}
+
+	/**
+	 * Gives back the given range to the free space.
+	 * <p>
+	 * The range is merged with the adjacent free fragments.
+	 *
+	 * @param interval The range to free.
+	 * @throws IllegalArgumentException if a part of the given range is already free.
+	 */
+	public void free(Interval interval) {
+		if (interval.isEmpty()) {
+			return;
+		}// else
+		if (freeSpace.intersect(interval)) {
+			throw new IllegalArgumentException("The range " + interval + " is already partially free.");
+		}// else
+		long inf = interval.getInferiorEndPoint();
+		long sup = interval.getSuperiorEndPoint();
+		final IntervalMapKey key = new IntervalMapKey(interval);
+		final IntervalMapKey before = freeSpace.intervals.lower(key);
+		final IntervalMapKey after = freeSpace.intervals.higher(key);
+		if (before != null && before.interval.isPreviousOf(interval)) {
+			inf = before.interval.getInferiorEndPoint();
+			unindex(find(inf));
+		}
+		if (after != null && after.interval.isNextOf(interval)) {
+			sup = after.interval.getSuperiorEndPoint();
+			unindex(find(after.interval.getInferiorEndPoint()));
+		}
+		freeSpace.addInterval(interval);
+		index(inf, sup);
+	}
+
+	/**
+	 * Gives back the given ranges to the free space.
+	 *
+	 * @param interval The ranges to free.
+	 * @throws IllegalArgumentException if a part of the given ranges is already free.
+	 */
+	public void free(FragmentedInterval interval) {
+		for (Interval i : interval.getIntervals()) {
+			free(i);
+		}
+	}
+
+	/**
+	 * Returns the length of the largest free fragment.
+	 *
+	 * @return the length of the largest free fragment, {@code 0} if there is no free space.
+	 */
+	public long getLargestFreeLength() {
+		return maxLength(root);
+	}
+
+	/**
+	 * Returns the number of free fragments.
+	 *
+	 * @return the number of free fragments.
+	 */
+	public int getFreeFragmentCount() {
+		return byLength.size();
+	}
+
+	/**
+	 * Returns the current free space.
+	 *
+	 * @return a copy of the current free space.
+	 */
+	public FragmentedInterval getFreeSpace() {
+		return FragmentedInterval.copyOf(freeSpace);
+	}
+
+	@Override
+	public String toString() {
+		return freeSpace.toString();
+	}
+
+	private static void checkLength(long length) {
+		if (length < 1) {
+			throw new IllegalArgumentException("length must be at least 1.");
+		}
+	}
+
+	private void index(long inf, long sup) {
+		final Node node = new Node(inf, sup, nextPriority());
+		byLength.add(node);
+		final Node[] split = split(root, inf);
+		root = merge(merge(split[0], node), split[1]);
+	}
+
+	private void unindex(Node node) {
+		byLength.remove(node);
+		root = remove(root, node.inf);
+	}
+
+	private Node find(long inf) {
+		Node node = root;
+		while (node != null && node.inf != inf) {
+			node = inf < node.inf ? node.left : node.right;
+		}
+		return node;
+	}
+
+	/**
+	 * Splits the given tree into the nodes whose position is lower than the given one and the others.
+	 */
+	private static Node[] split(Node node, long inf) {
+		if (node == null) {
+			return new Node[2];
+		}// else
+		final Node[] result;
+		if (node.inf < inf) {
+			result = split(node.right, inf);
+			node.right = result[0];
+			result[0] = node;
+		} else {
+			result = split(node.left, inf);
+			node.left = result[1];
+			result[1] = node;
+		}
+		node.update();
+		return result;
+	}
+
+	/**
+	 * Merges two trees, all the positions of {@code left} being lower than the positions of {@code right}.
+	 */
+	private static Node merge(Node left, Node right) {
+		if (left == null) {
+			return right;
+		}// else
+		if (right == null) {
+			return left;
+		}// else
+		if (left.priority > right.priority) {
+			left.right = merge(left.right, right);
+			left.update();
+			return left;
+		}// else
+		right.left = merge(left, right.left);
+		right.update();
+		return right;
+	}
+
+	private static Node remove(Node node, long inf) {
+		if (node == null) {
+			return null;
+		}// else
+		if (node.inf == inf) {
+			return merge(node.left, node.right);
+		}// else
+		if (inf < node.inf) {
+			node.left = remove(node.left, inf);
+		} else {
+			node.right = remove(node.right, inf);
+		}
+		node.update();
+		return node;
+	}
+
+	private static long maxLength(Node node) {
+		return node == null ? 0 : node.maxLength;
+	}
+
+	private int nextPriority() {
+		// xorshift
+		int x = seed;
+		x ^= x << 13;
+		x ^= x >>> 17;
+		x ^= x << 5;
+		seed = x;
+		return x;
+	}
+
+	/**
+	 * A free fragment.
+	 */
+	private static final class Node {
+
+		final long inf;
+
+		final long sup;
+
+		/**
+		 * The number of points of the fragment, saturated at {@link Long#MAX_VALUE}.
+		 */
+		final long length;
+
+		final int priority;
+
+		/**
+		 * The maximum length of this node's subtree.
+		 */
+		long maxLength;
+
+		Node left;
+
+		Node right;
+
+		Node(long inf, long sup, int priority) {
+			this.inf = inf;
+			this.sup = sup;
+			final long l = sup - inf + 1;
+			this.length = l > 0 ? l : Long.MAX_VALUE;
+			this.priority = priority;
+			this.maxLength = length;
+		}
+
+		/**
+		 * Creates a search key for the length index.
+		 */
+		Node(long inf, long length) {
+			this.inf = inf;
+			this.sup = inf;
+			this.length = length;
+			this.priority = 0;
+		}
+
+		void update() {
+			maxLength = Math.max(length, Math.max(maxLength(left), maxLength(right)));
+		}
+	}
+}
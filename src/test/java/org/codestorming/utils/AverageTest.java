@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2012-2017 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests of the compensated running sum of {@link Average}.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ */
+public class AverageTest {
+
+	@Test
+	public void compensatedSumMatchesExactSum() {
+		final Random random = new Random(11);
+		final int window = 100;
+		final Average average = new Average(window);
+		final double[] all = new double[20000];
+		for (int i = 0; i < all.length; i++) {
+			// Large values cancelling each other, hiding small ones from a naive sum
+			all[i] = random.nextBoolean() ? (random.nextBoolean() ? 1e16 : -1e16) : random.nextDouble();
+			average.add(all[i]);
+			BigDecimal sum = BigDecimal.ZERO;
+			final int first = Math.max(0, i + 1 - window);
+			for (int j = first; j <= i; j++) {
+				sum = sum.add(new BigDecimal(all[j]));
+			}
+			final double expected = sum.divide(BigDecimal.valueOf(i + 1 - first), MathContext.DECIMAL128)
+					.doubleValue();
+			assertEquals(expected, average.get(), Math.ulp(expected) * 2 + 1e-15);
+		}
+	}
+
+	@Test
+	public void nonFiniteValuesAreEvicted() {
+		final Average average = new Average(3);
+		average.add(1.0);
+		average.add(Double.NaN);
+		assertTrue(Double.isNaN(average.get()));
+		average.add(Double.POSITIVE_INFINITY);
+		average.add(Double.NEGATIVE_INFINITY);
+		assertTrue(Double.isNaN(average.get()));
+		average.add(2.0);
+		assertTrue(Double.isNaN(average.get()));
+		average.add(4.0);
+		assertEquals(Double.NEGATIVE_INFINITY, average.get(), 0.0);
+		assertEquals(Double.NEGATIVE_INFINITY, average.summary().getSum(), 0.0);
+		average.add(6.0);
+		assertEquals(4.0, average.get(), 0.0);
+		assertEquals(12.0, average.summary().getSum(), 0.0);
+	}
+
+	@Test
+	public void overflowedSumRecovers() {
+		final Average average = new Average(2);
+		average.add(Double.MAX_VALUE);
+		average.add(Double.MAX_VALUE);
+		assertEquals(Double.POSITIVE_INFINITY, average.get(), 0.0);
+		average.add(1.0);
+		assertEquals(Double.MAX_VALUE / 2 + 0.5, average.get(), 0.0);
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2012-2017 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+/**
+ * Tests of the varint codec of {@link Bytes}.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ */
+public class BytesTest {
+
+	@Test
+	public void varintsRoundTrip() {
+		final long[] values = {0L, 1L, 127L, 128L, 300L, Long.MAX_VALUE, -1L, Long.MIN_VALUE};
+		final byte[] bytes = new byte[values.length * 10];
+		final int written = Bytes.putVarints(values, 0, values.length, bytes, 0);
+		final long[] read = new long[values.length];
+		assertEquals(written, Bytes.getVarints(bytes, 0, read, 0, values.length));
+		assertArrayEquals(values, read);
+		final ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, written);
+		assertEquals(written, Bytes.getVarints(buffer, read, 0, values.length));
+		assertArrayEquals(values, read);
+		assertEquals(written, Bytes.putVarints(values, 0, values.length, ByteBuffer.allocate(bytes.length)));
+	}
+
+	@Test
+	public void varintWritersReturnTheSize() {
+		final byte[] bytes = new byte[20];
+		final ByteBuffer buffer = ByteBuffer.allocate(20);
+		for (long value : new long[] {0L, 127L, 128L, 1L << 35, -1L}) {
+			final int size = Bytes.varintSize(value);
+			assertEquals(size, Bytes.putVarint(bytes, 5, value));
+			buffer.clear();
+			assertEquals(size, Bytes.putVarint(buffer, value));
+			assertEquals(value, Bytes.getVarint(bytes, 5));
+		}
+	}
+
+	@Test
+	public void tenBytesVarintCarryingTheLastBit() {
+		final byte[] bytes = new byte[10];
+		for (int i = 0; i < 9; i++) {
+			bytes[i] = (byte) 0xFF;
+		}
+		bytes[9] = 0x01;
+		assertEquals(-1L, Bytes.getVarint(bytes, 0));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void overlongVarint() {
+		Bytes.getVarint(new byte[] {(byte) 0x80, 0x00}, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void overlongVarintInBulk() {
+		Bytes.getVarints(new byte[] {(byte) 0x80, 0x00, 0x05}, 0, new long[2], 0, 2);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void overlongVarintInBuffer() {
+		Bytes.getVarint(ByteBuffer.wrap(new byte[] {(byte) 0xFF, (byte) 0x80, 0x00}));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void overflowingTenthByte() {
+		final byte[] bytes = new byte[10];
+		for (int i = 0; i < 9; i++) {
+			bytes[i] = (byte) 0xFF;
+		}
+		bytes[9] = 0x02;
+		Bytes.getVarint(bytes, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void overflowingTenthByteInBuffer() {
+		final byte[] bytes = new byte[10];
+		for (int i = 0; i < 9; i++) {
+			bytes[i] = (byte) 0x80;
+		}
+		bytes[9] = 0x7F;
+		Bytes.getVarint(ByteBuffer.wrap(bytes));
+	}
+
+	@Test
+	public void hexStringOfRange() {
+		final byte[] bytes = {0x01, (byte) 0xAB, (byte) 0xFF, 0x10};
+		assertEquals("abff", Bytes.bytesToHexString(bytes, 1, 2, true));
+		assertEquals("01ABFF10", Bytes.bytesToHexString(bytes));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void hexStringRangeCheckedBeforeAllocation() {
+		// length * 2 would overflow if the array was allocated first
+		Bytes.bytesToHexString(new byte[4], 0, Integer.MAX_VALUE, false);
+	}
+}
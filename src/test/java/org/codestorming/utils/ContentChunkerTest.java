@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2012-2017 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests of {@link ContentChunker}.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ */
+public class ContentChunkerTest {
+
+	@Test
+	public void sameChunksFromArrayStreamAndChannel() throws IOException, NoSuchAlgorithmException {
+		final byte[] content = new byte[1_000_000];
+		new Random(17).nextBytes(content);
+		final ContentChunker chunker = new ContentChunker(2048, 8192, 65536);
+		final Hasher hasher = Hasher.shared("SHA-256");
+
+		final List<String> fromArray = new ArrayList<>();
+		chunker.chunk(content, 0, content.length, hasher, collector(fromArray));
+		final List<String> fromStream = new ArrayList<>();
+		assertEquals(content.length, chunker.chunk(new ByteArrayInputStream(content), hasher, collector(fromStream)));
+		final List<String> fromChannel = new ArrayList<>();
+		assertEquals(content.length, chunker.chunk(Channels.newChannel(new ByteArrayInputStream(content)), hasher,
+				collector(fromChannel)));
+
+		assertEquals(fromArray, fromStream);
+		assertEquals(fromArray, fromChannel);
+	}
+
+	private static ContentChunker.ChunkListener collector(final List<String> chunks) {
+		return new ContentChunker.ChunkListener() {
+			@Override
+			public void onChunk(long offset, int length, byte[] digest) {
+				chunks.add(offset + ":" + length + ":" + Bytes.bytesToHexString(digest));
+			}
+		};
+	}
+}
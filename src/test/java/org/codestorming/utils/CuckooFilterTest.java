@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2012-2017 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests of {@link CuckooFilter}.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ */
+public class CuckooFilterTest {
+
+	@Test
+	public void victimReinsertedOnRemoval() {
+		final CuckooFilter filter = new CuckooFilter(64);
+		final List<Long> added = fill(filter, new Random(37));
+		// The filter is full, a fingerprint being kept aside
+		assertEquals(added.size(), filter.size());
+		assertTrue(filter.size() <= filter.getCapacity() + 1);
+		final byte[] bytes = filter.toByteArray();
+		assertTrue(Bytes.getShort(bytes, 12) != 0);
+		assertEquals(filter.size(), CuckooFilter.fromByteArray(bytes, 0).size());
+
+		assertTrue(filter.remove(added.remove(0)));
+		assertEquals(added.size(), filter.size());
+		for (long key : added) {
+			assertTrue(filter.mightContain(key));
+		}
+		// The freed slot is taken again
+		while (filter.add(1_000_000L + added.size())) {
+			added.add(1_000_000L + added.size());
+		}
+		for (long key : added) {
+			assertTrue(filter.mightContain(key));
+		}
+	}
+
+	@Test
+	public void removeAllAfterFull() {
+		final CuckooFilter filter = new CuckooFilter(64);
+		final List<Long> added = fill(filter, new Random(41));
+		for (long key : added) {
+			assertTrue(filter.remove(key));
+		}
+		assertEquals(0, filter.size());
+		assertTrue(filter.add(42L));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void countBeyondCapacityRejected() {
+		final CuckooFilter filter = new CuckooFilter(64);
+		filter.add(1L);
+		final byte[] bytes = filter.toByteArray();
+		Bytes.putLong(bytes, 4, filter.getCapacity() + 2);
+		CuckooFilter.fromByteArray(bytes, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void countNotMatchingFingerprintsRejected() {
+		final CuckooFilter filter = new CuckooFilter(64);
+		filter.add(1L);
+		filter.add(2L);
+		final byte[] bytes = filter.toByteArray();
+		Bytes.putLong(bytes, 4, 1L);
+		CuckooFilter.fromByteArray(bytes, 0);
+	}
+
+	/**
+	 * Adds random keys until the filter refuses one.
+	 */
+	private static List<Long> fill(CuckooFilter filter, Random random) {
+		final List<Long> added = new ArrayList<>();
+		long key = random.nextLong();
+		while (filter.add(key)) {
+			added.add(key);
+			key = random.nextLong();
+		}
+		return added;
+	}
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2012-2017 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.Checksum;
+
+import org.junit.Test;
+
+/**
+ * Known-answer tests of the non-cryptographic hashes of {@link Hash}, on the inputs
+ * {@code 0, 1, 2, ...} of lengths crossing the tails of each algorithm.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ */
+public class HashTest {
+
+	/**
+	 * Length, xxHash64 with seed {@code 0}, xxHash64 with seed {@code 0x9E3779B97F4A7C15}.
+	 */
+	private static final long[][] XXHASH64 = {
+			{0, 0xEF46DB3751D8E999L, 0xC4349FC93C010000L},
+			{1, 0xE934A84ADB052768L, 0x126BB57A12364AA5L},
+			{3, 0xE5C7BB4533BC65DDL, 0x67BC6ED5F6C6E4BAL},
+			{4, 0xFFCED8604453CC1EL, 0xD89842CD31E24E54L},
+			{7, 0x14CC643F630C72D2L, 0xECECF5FAA8A7490EL},
+			{8, 0x884A173614B81B8DL, 0xD18B6D7A5A668732L},
+			{9, 0x67D85784A7C78C5BL, 0x5E47193DADB91D9AL},
+			{15, 0xA948F5F0F6ABAC2DL, 0x7804C1FCFE249577L},
+			{16, 0x44B6EF2FB84169F7L, 0x1A1A343E4550D065L},
+			{17, 0x5603E60C527599B6L, 0xFA8565AE182D775CL},
+			{31, 0xC346D2B59B4D8EE1L, 0xF3DA6D05709C035DL},
+			{32, 0xCBF59C5116FF32B4L, 0xA1C89217E9D50750L},
+			{33, 0x0C535D1ACAFB8EADL, 0xE6A3C00CD6E74075L},
+			{63, 0xE26AA9E2A95F8E4FL, 0x26A0ACD772DE057EL},
+			{64, 0xF7C67301DB6713F0L, 0x2589245E62A1969BL},
+			{100, 0x6AC1E58032166597L, 0x3B97D91EBA03E785L}};
+
+	/**
+	 * Length, MurmurHash3 x64 128 bits with seed {@code 0}, with seed {@code 0x12345678}.
+	 */
+	private static final String[][] MURMUR3_128 = {
+			{"0", "00000000000000000000000000000000", "AD8BF75BEC9B76E5A7B3BD8E2795BD53"},
+			{"1", "B55CFF6EE5AB10468335F878AA2D6251", "88E51A3BC8C96CFB174D6C3EE2723B6F"},
+			{"3", "BEE653EF2FA172B8B696B352C25562FB", "6FE1780F4A486C90F3648020142CADC8"},
+			{"4", "10AFDF0DAE94C5E1E2FDC213BD05D6D3", "40738BBFD4AD1299F4D62106C191186D"},
+			{"7", "680D4BCA87694CBD87C725BDD4DD3A61", "9B5970A91AFAF53129EC74D7FC49BB7E"},
+			{"8", "C82F8ED6BDE1A747C7DC31EC02EEE660", "C93907FDA2C3B7204F1939DF077E6200"},
+			{"9", "322D816E0FCBB4FBB9FF00021D75DE78", "99ED4869098AA767C3FAC4D5110086E8"},
+			{"15", "E92549FD98152347E97DC688EE6D84CD", "1E48B884DAEAE3F37085953BE5184A5F"},
+			{"16", "303F9091B524494445E82F76566490AB", "E351EB408C6C7E6F0E83E03D67A52E1C"},
+			{"17", "0EC2E79F0FF4765C24A8DA9E6B025FC1", "432362CD5DE984B07CF55D00EB3169F8"},
+			{"31", "94D02CA3E1D33D05905400B4EF9AE59E", "908E6F11AB58E4794795B2C17761D060"},
+			{"32", "0F502FB622906DC65111C3346E0A051C", "3EC5D2945556FD959A06F52C244839AA"},
+			{"33", "1246BAFA1B28417D0BA3D6A77380AC55", "70365F890F184DA92FF6B6FEA3B83596"},
+			{"63", "94600734460DA3996743C2D4A1C6A4ED", "6BF95E36971C0FD4A01A7E20BD8C1BC9"},
+			{"64", "0123818D2D52D5FFA18E3356EB3822A2", "A90FFFA9A971BB1749E91E8217A5EA5A"},
+			{"100", "CA5140C199996FB0990734C8936DBD0F", "B6A8FDEFB8DEC565657429998CE6D42A"}};
+
+	/**
+	 * Length, CRC32C.
+	 */
+	private static final int[][] CRC32C = {
+			{0, 0x00000000},
+			{1, 0x527D5351},
+			{3, 0x92FD4BFA},
+			{4, 0xD9331AA3},
+			{7, 0xA359ED4C},
+			{8, 0x8A2CBC3B},
+			{9, 0x7144C5A8},
+			{15, 0x68EF03F6},
+			{16, 0xD9C908EB},
+			{17, 0x38435E17},
+			{31, 0xE95CABCB},
+			{32, 0x46DD794E},
+			{33, 0x9F85A26D},
+			{63, 0x7A873004},
+			{64, 0xFB6D36EB},
+			{100, 0xC1CAEBE5}};
+
+	private static byte[] counting(int length) {
+		final byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = (byte) i;
+		}
+		return bytes;
+	}
+
+	private static ByteBuffer direct(byte[] bytes) {
+		final ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+		buffer.put(bytes).flip();
+		return buffer;
+	}
+
+	/**
+	 * Copies the given bytes at the offset {@code 3} of a larger array.
+	 */
+	private static byte[] shifted(byte[] bytes) {
+		final byte[] array = new byte[bytes.length + 5];
+		System.arraycopy(bytes, 0, array, 3, bytes.length);
+		return array;
+	}
+
+	@Test
+	public void xxHash64() {
+		assertEquals(0xD24EC4F1A98C6E5BL, Hash.xxHash64("a".getBytes(StandardCharsets.US_ASCII), 0L));
+		assertEquals(0x44BC2CF5AD770999L, Hash.xxHash64("abc".getBytes(StandardCharsets.US_ASCII), 0L));
+		for (long[] vector : XXHASH64) {
+			final byte[] input = counting((int) vector[0]);
+			assertEquals(vector[1], Hash.xxHash64(input, 0L));
+			assertEquals(vector[2], Hash.xxHash64(input, 0x9E3779B97F4A7C15L));
+			assertEquals(vector[1], Hash.xxHash64(shifted(input), 3, input.length, 0L));
+			assertEquals(vector[1], Hash.xxHash64(direct(input), 0L));
+		}
+		assertEquals(Hash.xxHash64(littleEndian(42L), 7L), Hash.xxHash64(42L, 7L));
+	}
+
+	@Test
+	public void murmur3() {
+		final byte[] fox = "The quick brown fox jumps over the lazy dog".getBytes(StandardCharsets.US_ASCII);
+		final byte[] hash = new byte[16];
+		Hash.murmur3_128(fox, 0, fox.length, 0, hash, 0);
+		assertEquals("6C1B07BC7BBC4BE347939AC4A93C437A", Bytes.bytesToHexString(hash));
+		for (String[] vector : MURMUR3_128) {
+			final byte[] input = counting(Integer.parseInt(vector[0]));
+			Hash.murmur3_128(input, 0, input.length, 0, hash, 0);
+			assertEquals(vector[1], Bytes.bytesToHexString(hash));
+			Hash.murmur3_128(direct(input), 0x12345678, hash, 0);
+			assertEquals(vector[2], Bytes.bytesToHexString(hash));
+			Hash.murmur3_128(shifted(input), 3, input.length, 0x12345678, hash, 0);
+			assertEquals(vector[2], Bytes.bytesToHexString(hash));
+			assertEquals(Bytes.getLong(Bytes.hexToBytes(vector[1]), 0, ByteOrder.LITTLE_ENDIAN),
+					Hash.murmur3_64(input, 0, input.length, 0));
+		}
+		assertEquals(Hash.murmur3_64(littleEndian(42L), 0, 8, 9), Hash.murmur3_64(42L, 9));
+	}
+
+	@Test
+	public void crc32c() {
+		final byte[] check = "123456789".getBytes(StandardCharsets.US_ASCII);
+		assertEquals(0xE3069283, Hash.crc32c(check, 0, check.length));
+		assertEquals(0xE3069283, fallback(check));
+		for (int[] vector : CRC32C) {
+			final byte[] input = counting(vector[0]);
+			assertEquals(vector[1], Hash.crc32c(input, 0, input.length));
+			assertEquals(vector[1], Hash.crc32c(direct(input)));
+			assertEquals(vector[1], fallback(input));
+			assertEquals(vector[1], ~Hash.Crc32c.update(~0, null, direct(input), 0, input.length));
+		}
+	}
+
+	/**
+	 * Compares the pure Java CRC32C with the one of the JDK, when available (Java 9+).
+	 */
+	@Test
+	public void crc32cFallbackMatchesJdk() throws ReflectiveOperationException {
+		final Class<? extends Checksum> type;
+		try {
+			type = Class.forName("java.util.zip.CRC32C").asSubclass(Checksum.class);
+		} catch (ClassNotFoundException e) {
+			return;
+		}
+		final Random random = new Random(5);
+		for (int i = 0; i < 200; i++) {
+			final byte[] input = new byte[random.nextInt(300)];
+			random.nextBytes(input);
+			final Checksum checksum = type.newInstance();
+			checksum.update(input, 0, input.length);
+			assertEquals((int) checksum.getValue(), fallback(input));
+		}
+	}
+
+	private static int fallback(byte[] input) {
+		return ~Hash.Crc32c.update(~0, input, null, 0, input.length);
+	}
+
+	private static byte[] littleEndian(long value) {
+		final byte[] bytes = new byte[8];
+		Bytes.putLong(bytes, 0, value, ByteOrder.LITTLE_ENDIAN);
+		return bytes;
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2012-2017 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests of {@link KeyedAverages} against one {@link Average} per key.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ */
+public class KeyedAveragesTest {
+
+	@Test
+	public void matchesOneAveragePerKey() {
+		final Random random = new Random(3);
+		final int window = 7;
+		final KeyedAverages averages = new KeyedAverages(window, 0);
+		final Map<Long, Average> reference = new HashMap<>();
+		final long[] keys = new long[64];
+		final double[] values = new double[64];
+		for (int batch = 0; batch < 500; batch++) {
+			for (int i = 0; i < keys.length; i++) {
+				// Spread keys, including negative ones, colliding in the table
+				keys[i] = (random.nextInt(3000) - 1500) * 0x100000000L;
+				values[i] = random.nextGaussian() * 1e6;
+				Average average = reference.get(keys[i]);
+				if (average == null) {
+					average = new Average(window);
+					reference.put(keys[i], average);
+				}
+				average.add(values[i]);
+			}
+			if ((batch & 1) == 0) {
+				averages.add(keys, values);
+			} else {
+				for (int i = 0; i < keys.length; i++) {
+					averages.add(keys[i], values[i]);
+				}
+			}
+		}
+		assertEquals(reference.size(), averages.size());
+		for (Map.Entry<Long, Average> entry : reference.entrySet()) {
+			assertTrue(averages.contains(entry.getKey()));
+			assertEquals(entry.getValue().get(), averages.get(entry.getKey()), 1e-6);
+		}
+		assertFalse(averages.contains(1L));
+		averages.clear();
+		assertEquals(0, averages.size());
+		assertEquals(0.0, averages.get(keys[0]), 0.0);
+	}
+
+	@Test
+	public void maxKeysBoundedByTheTable() {
+		assertEquals(3 << 28, new KeyedAverages(1, 0).getMaxKeys());
+		assertEquals((Integer.MAX_VALUE - 8) / 1000, new KeyedAverages(1000, 0).getMaxKeys());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void tooManyExpectedKeys() {
+		new KeyedAverages(2, (3 << 28) + 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void tooManyExpectedValues() {
+		new KeyedAverages(2000, 2000000);
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2012-2017 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests of the windowed statistics of {@link LongAverage}.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ */
+public class LongAverageTest {
+
+	@Test
+	public void statsMatchTheWindow() {
+		final Random random = new Random(7);
+		final int window = 50;
+		final LongAverage average = new LongAverage(window);
+		final long[] all = new long[2000];
+		for (int i = 0; i < all.length; i++) {
+			// Large latencies with a small spread, then extreme values
+			all[i] = i < 1000 ? 1000000000000L + random.nextInt(1000) : random.nextLong();
+			average.add(all[i]);
+			final int first = Math.max(0, i + 1 - window);
+			long min = Long.MAX_VALUE;
+			long max = Long.MIN_VALUE;
+			BigInteger sum = BigInteger.ZERO;
+			BigInteger squares = BigInteger.ZERO;
+			for (int j = first; j <= i; j++) {
+				min = Math.min(min, all[j]);
+				max = Math.max(max, all[j]);
+				final BigInteger value = BigInteger.valueOf(all[j]);
+				sum = sum.add(value);
+				squares = squares.add(value.multiply(value));
+			}
+			final long n = i + 1 - first;
+			final BigInteger deviations = squares.multiply(BigInteger.valueOf(n)).subtract(sum.multiply(sum));
+			final double variance = new BigDecimal(deviations).divide(new BigDecimal(n * n), MathContext.DECIMAL64)
+					.doubleValue();
+			assertEquals(min, average.getMin());
+			assertEquals(max, average.getMax());
+			assertEquals(variance, average.getVariance(), Math.ulp(variance) * 4);
+		}
+	}
+
+	@Test
+	public void averageCorrectlyRounded() {
+		final Random random = new Random(13);
+		final LongAverage average = new LongAverage(7);
+		final long[] window = new long[7];
+		for (int i = 0; i < 5000; i++) {
+			// Sums beyond 53 bits and beyond 64 bits
+			final long value = i % 2 == 0 ? random.nextLong() : Long.MAX_VALUE - random.nextInt(1000);
+			window[i % window.length] = value;
+			average.add(value);
+			final int count = Math.min(i + 1, window.length);
+			BigInteger sum = BigInteger.ZERO;
+			for (int j = 0; j < count; j++) {
+				sum = sum.add(BigInteger.valueOf(window[j]));
+			}
+			final double expected = new BigDecimal(sum).divide(BigDecimal.valueOf(count), new MathContext(60))
+					.doubleValue();
+			assertEquals(expected, average.get(), 0.0);
+		}
+	}
+
+	@Test
+	public void extremeValues() {
+		final LongAverage average = new LongAverage(3);
+		average.add(new long[] {Long.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE, Long.MIN_VALUE, Long.MIN_VALUE});
+		assertEquals(0.0, average.getVariance(), 0.0);
+		assertEquals(Long.MIN_VALUE, average.getMin());
+		assertEquals(Long.MIN_VALUE, average.getMax());
+		average.reset();
+		assertEquals(0L, average.getMin());
+		average.add(-3L);
+		average.add(5L);
+		assertEquals(16.0, average.getVariance(), 0.0);
+		assertEquals(32.0, average.getSampleVariance(), 0.0);
+	}
+}
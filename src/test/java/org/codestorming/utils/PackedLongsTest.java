@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2012-2017 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests of {@link PackedLongs}.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ */
+public class PackedLongsTest {
+
+	@Test
+	public void serializationRoundTrip() {
+		final long[] values = new long[300];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = i * 1000L + (i % 7);
+		}
+		final byte[] bytes = PackedLongs.encode(values).toByteArray();
+		assertArrayEquals(values, PackedLongs.fromByteArray(bytes, 0).toArray());
+	}
+
+	@Test
+	public void randomRoundTrips() {
+		final Random random = new Random(31);
+		for (int round = 0; round < 200; round++) {
+			final long[] values = new long[random.nextInt(1000)];
+			final int kind = round % 4;
+			long value = random.nextLong();
+			for (int i = 0; i < values.length; i++) {
+				if (kind == 0) {
+					// Sorted with small gaps
+					value += random.nextInt(1 << random.nextInt(20));
+				} else if (kind == 1) {
+					// Unsorted
+					value = random.nextLong();
+				} else if (kind == 2) {
+					// Deltas overflowing a long
+					value = random.nextBoolean() ? Long.MIN_VALUE + random.nextInt(3) : Long.MAX_VALUE - random.nextInt(3);
+				} else {
+					// Evenly spaced, or runs of equal values
+					value += round % 8 == 3 ? 0 : 1000;
+				}
+				values[i] = value;
+			}
+			check(values);
+		}
+	}
+
+	@Test
+	public void extremeValues() {
+		check(new long[] {});
+		check(new long[] {Long.MIN_VALUE});
+		check(new long[] {Long.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE, 0L, Long.MAX_VALUE, -1L});
+		final long[] alternating = new long[PackedLongs.BLOCK_SIZE * 2 + 1];
+		for (int i = 0; i < alternating.length; i++) {
+			alternating[i] = i % 2 == 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+		}
+		check(alternating);
+	}
+
+	private static void check(long[] values) {
+		final PackedLongs packed = PackedLongs.encode(values);
+		assertEquals(values.length, packed.size());
+		assertArrayEquals(values, packed.toArray());
+		for (int i = 0; i < values.length; i += 1 + values.length / 16) {
+			assertEquals(values[i], packed.get(i));
+		}
+		// Same sequence through an encoder fed value by value and by arrays
+		final PackedLongs.Encoder encoder = new PackedLongs.Encoder();
+		int i = 0;
+		while (i < values.length) {
+			if (i % 3 == 0) {
+				encoder.add(values[i++]);
+			} else {
+				final int length = Math.min(values.length - i, 50);
+				encoder.add(values, i, length);
+				i += length;
+			}
+		}
+		assertEquals(packed, encoder.build());
+		final byte[] bytes = packed.toByteArray();
+		assertEquals(packed.getEncodedSize(), bytes.length);
+		final byte[] shifted = new byte[bytes.length + 3];
+		System.arraycopy(bytes, 0, shifted, 3, bytes.length);
+		assertEquals(packed, PackedLongs.fromByteArray(shifted, 3));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void hugeSizeRejectedBeforeAllocation() {
+		final byte[] bytes = new byte[64];
+		Bytes.putInt(bytes, 0, Integer.MAX_VALUE);
+		PackedLongs.fromByteArray(bytes, 0);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void truncatedWordsRejected() {
+		final long[] values = {0L, Long.MAX_VALUE, 3L, -5L};
+		final byte[] bytes = PackedLongs.encode(values).toByteArray();
+		PackedLongs.fromByteArray(Arrays.copyOf(bytes, bytes.length - 1), 0);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void wordCountsBeyondSourceRejected() {
+		// 2^24 blocks of 64 bits wide differences claimed by a short source
+		final int blocks = 1 << 24;
+		final byte[] bytes = new byte[4 + 17 * 4];
+		Bytes.putInt(bytes, 0, blocks * PackedLongs.BLOCK_SIZE - 1);
+		for (int block = 0; block < 4; block++) {
+			bytes[4 + 17 * block + 16] = 64;
+		}
+		PackedLongs.fromByteArray(bytes, 0);
+	}
+}
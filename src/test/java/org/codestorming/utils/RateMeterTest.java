@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2012-2017 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.junit.Test;
+
+/**
+ * Tests of {@link RateMeter} with a manual clock.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ */
+public class RateMeterTest {
+
+	private static final long TICK = TimeUnit.SECONDS.toNanos(RateMeter.TICK_SECONDS);
+
+	private final AtomicLong time = new AtomicLong();
+
+	private final LongSupplier clock = new LongSupplier() {
+		@Override
+		public long getAsLong() {
+			return time.get();
+		}
+	};
+
+	@Test
+	public void firstTickInitializesTheRates() {
+		final RateMeter meter = new RateMeter(clock);
+		meter.mark(60);
+		assertEquals(0.0, meter.getOneMinuteRate(), 0.0);
+		time.addAndGet(TICK);
+		assertEquals(12.0, meter.getOneMinuteRate(), 1e-12);
+		assertEquals(12.0, meter.getFifteenMinutesRate(), 1e-12);
+		assertEquals(60, meter.getCount());
+	}
+
+	@Test
+	public void noEventLostWhileTicking() throws InterruptedException {
+		final RateMeter meter = new RateMeter(clock);
+		final int threads = 4;
+		final int marks = 200000;
+		final Thread[] markers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			markers[t] = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < marks; i++) {
+						if ((i & 1023) == 0) {
+							time.addAndGet(TICK);
+						}
+						meter.mark();
+					}
+				}
+			};
+			markers[t].start();
+		}
+		for (Thread marker : markers) {
+			marker.join();
+		}
+		assertEquals((long) threads * marks, meter.getCount());
+		time.addAndGet(TICK);
+		meter.getOneMinuteRate();
+		assertEquals((long) threads * marks, meter.getCount());
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2012-2017 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+/**
+ * Tests of {@link StripedAverage}.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ */
+public class StripedAverageTest {
+
+	@Test
+	public void windowIsPerStripe() {
+		final StripedAverage average = new StripedAverage(100, 4);
+		// A single thread never contends, its values stay in the same stripe of 25 values
+		for (int i = 1; i <= 1000; i++) {
+			average.add(i);
+		}
+		assertEquals(25, average.summary().getCount());
+		assertEquals((976 + 1000) / 2.0, average.get(), 0.0);
+	}
+
+	@Test
+	public void concurrentWritersKeepTheAverage() throws InterruptedException {
+		final int threads = 8;
+		final int values = 20000;
+		final StripedAverage average = new StripedAverage(threads * values, threads);
+		final CountDownLatch start = new CountDownLatch(1);
+		final Thread[] writers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			writers[t] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					for (int i = 0; i < values; i++) {
+						average.add(3.0);
+					}
+				}
+			};
+			writers[t].start();
+		}
+		start.countDown();
+		for (Thread writer : writers) {
+			writer.join();
+		}
+		final long count = average.summary().getCount();
+		// The stripes are full or hold all the values
+		assertTrue(count >= values && count <= (long) threads * values);
+		assertEquals(3.0, average.get(), 0.0);
+	}
+}
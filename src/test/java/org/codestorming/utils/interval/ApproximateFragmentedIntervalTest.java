@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2012-2017 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.utils.interval;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests of the over-coverage of {@link ApproximateFragmentedInterval}.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ */
+public class ApproximateFragmentedIntervalTest {
+
+	@Test
+	public void addInsideFilledGap() {
+		final ApproximateFragmentedInterval interval = new ApproximateFragmentedInterval(10);
+		interval.addInterval(new Interval(0, 9));
+		interval.addInterval(new Interval(20, 29));
+		assertEquals(10, interval.getOverCoverage());
+		// Absorbed, the points being already covered
+		interval.addInterval(new Interval(12, 14));
+		assertEquals(7, interval.getOverCoverage());
+		interval.addInterval(new Interval(5, 25));
+		assertEquals(0, interval.getOverCoverage());
+	}
+
+	@Test
+	public void overCoverageMatchesBruteForce() {
+		final Random random = new Random(42);
+		for (int run = 0; run < 20; run++) {
+			final ApproximateFragmentedInterval interval = new ApproximateFragmentedInterval(random.nextInt(8),
+					1 + random.nextInt(10));
+			final BitSet added = new BitSet();
+			for (int i = 0; i < 300; i++) {
+				final int lo = random.nextInt(2000);
+				final int hi = lo + random.nextInt(20);
+				interval.addInterval(new Interval(lo, hi));
+				added.set(lo, hi + 1);
+			}
+			long covered = 0;
+			for (Interval fragment : interval.getIntervals()) {
+				covered += fragment.getSuperiorEndPoint() - fragment.getInferiorEndPoint() + 1;
+			}
+			assertEquals(covered - added.cardinality(), interval.getOverCoverage());
+		}
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2012-2017 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.utils.interval;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Randomized tests of {@link IntervalCoverage} against a plain array of depths.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ */
+public class IntervalCoverageTest {
+
+	private static final int POINTS = 200;
+
+	@Test
+	public void depthsMatchSweep() {
+		final Random random = new Random(23);
+		final IntervalCoverage coverage = new IntervalCoverage();
+		final int[] depths = new int[POINTS];
+		final List<Interval> added = new ArrayList<>();
+		for (int step = 0; step < 3000; step++) {
+			if (added.isEmpty() || random.nextInt(3) > 0) {
+				final int a = random.nextInt(POINTS);
+				final int b = a + random.nextInt(Math.min(40, POINTS - a));
+				final int multiplicity = 1 + random.nextInt(3);
+				final Interval interval = new Interval(a, b);
+				coverage.add(interval, multiplicity);
+				for (int m = 0; m < multiplicity; m++) {
+					added.add(interval);
+				}
+				sweep(depths, a, b, multiplicity);
+			} else {
+				final Interval interval = added.remove(random.nextInt(added.size()));
+				coverage.remove(interval);
+				sweep(depths, (int) interval.getInferiorEndPoint(), (int) interval.getSuperiorEndPoint(), -1);
+			}
+			if (step % 50 == 0) {
+				check(coverage, depths);
+			}
+		}
+		check(coverage, depths);
+		while (!added.isEmpty()) {
+			coverage.remove(added.remove(added.size() - 1));
+		}
+		assertTrue(coverage.isEmpty());
+		assertEquals(0, coverage.getBoundaryCount());
+	}
+
+	@Test
+	public void unboundedInterval() {
+		final IntervalCoverage coverage = new IntervalCoverage();
+		coverage.add(new Interval(10, Long.MAX_VALUE), 2);
+		coverage.add(new Interval(Long.MIN_VALUE, 20));
+		assertEquals(1, coverage.depth(Long.MIN_VALUE));
+		assertEquals(3, coverage.depth(15));
+		assertEquals(2, coverage.depth(Long.MAX_VALUE));
+		assertEquals(new FragmentedInterval(new Interval(10, 20)), coverage.rangesWithDepthAtLeast(3));
+		assertEquals(new FragmentedInterval(new Interval(10, Long.MAX_VALUE)), coverage.rangesWithDepthAtLeast(2));
+	}
+
+	private static void sweep(int[] depths, int a, int b, int delta) {
+		for (int i = a; i <= b; i++) {
+			depths[i] += delta;
+		}
+	}
+
+	private static void check(IntervalCoverage coverage, int[] depths) {
+		int boundaries = 0;
+		int previous = 0;
+		for (int i = 0; i < POINTS; i++) {
+			assertEquals(depths[i], coverage.depth(i));
+			if (depths[i] != previous) {
+				boundaries++;
+			}
+			previous = depths[i];
+		}
+		if (previous != 0) {
+			boundaries++;
+		}
+		assertEquals(boundaries, coverage.getBoundaryCount());
+		assertEquals(0, coverage.depth(-1));
+		assertEquals(0, coverage.depth(POINTS));
+		for (int minDepth = 1; minDepth <= 4; minDepth++) {
+			final FragmentedInterval ranges = coverage.rangesWithDepthAtLeast(minDepth);
+			for (int i = 0; i < POINTS; i++) {
+				assertEquals(depths[i] >= minDepth, ranges.contains(i));
+			}
+		}
+	}
+}
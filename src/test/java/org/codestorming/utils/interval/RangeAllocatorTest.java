@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2012-2017 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.utils.interval;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Randomized tests of {@link RangeAllocator} against a {@link BitSet} of the free points.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ */
+public class RangeAllocatorTest {
+
+	private static final int POINTS = 256;
+
+	@Test
+	public void allocationsMatchBitSetModel() {
+		final Random random = new Random(29);
+		final BitSet free = new BitSet(POINTS);
+		free.set(0, POINTS);
+		// Initial free space with a few holes
+		free.clear(40, 45);
+		free.clear(100);
+		free.clear(200, 230);
+		final RangeAllocator allocator = new RangeAllocator(freeSpaceOf(free));
+		final List<Interval> allocated = new ArrayList<>();
+		for (int step = 0; step < 5000; step++) {
+			final int operation = random.nextInt(4);
+			if (operation == 3 && !allocated.isEmpty()) {
+				final Interval interval = allocated.remove(random.nextInt(allocated.size()));
+				allocator.free(interval);
+				free.set((int) interval.getInferiorEndPoint(), (int) interval.getSuperiorEndPoint() + 1);
+			} else {
+				final int length = 1 + random.nextInt(24);
+				final Interval interval;
+				final int expected;
+				if (operation == 0) {
+					interval = allocator.allocateFirstFit(length);
+					expected = firstFit(free, length, 1);
+				} else if (operation == 1) {
+					interval = allocator.allocateBestFit(length);
+					expected = bestFit(free, length);
+				} else {
+					final int alignment = 1 << random.nextInt(5);
+					interval = allocator.allocateAligned(length, alignment);
+					expected = firstFit(free, length, alignment);
+				}
+				if (expected < 0) {
+					assertTrue(interval.isEmpty());
+				} else {
+					assertEquals(new Interval(expected, expected + length - 1), interval);
+					free.clear(expected, expected + length);
+					allocated.add(interval);
+				}
+			}
+			check(allocator, free);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void freeingFreePointsIsRejected() {
+		final RangeAllocator allocator = new RangeAllocator(new Interval(0, 99));
+		allocator.allocateFirstFit(10);
+		allocator.free(new Interval(5, 14));
+	}
+
+	private static FragmentedInterval freeSpaceOf(BitSet free) {
+		final FragmentedIntervalBuilder builder = new FragmentedIntervalBuilder();
+		for (int i = free.nextSetBit(0); i >= 0; i = free.nextSetBit(free.nextClearBit(i))) {
+			builder.addInterval(new Interval(i, free.nextClearBit(i) - 1));
+		}
+		return builder.create();
+	}
+
+	/**
+	 * Lowest start multiple of {@code alignment} of {@code length} free points, {@code -1} if none.
+	 */
+	private static int firstFit(BitSet free, int length, int alignment) {
+		for (int start = 0; start + length <= POINTS; start += alignment) {
+			final int next = free.nextClearBit(start);
+			if (free.get(start) && next - start >= length) {
+				return start;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Start of the smallest free fragment of at least {@code length} points, the lowest one among
+	 * the equal ones, {@code -1} if none.
+	 */
+	private static int bestFit(BitSet free, int length) {
+		int best = -1;
+		int bestLength = Integer.MAX_VALUE;
+		for (int i = free.nextSetBit(0); i >= 0; i = free.nextSetBit(free.nextClearBit(i))) {
+			final int fragment = free.nextClearBit(i) - i;
+			if (fragment >= length && fragment < bestLength) {
+				best = i;
+				bestLength = fragment;
+			}
+		}
+		return best;
+	}
+
+	private static void check(RangeAllocator allocator, BitSet free) {
+		final FragmentedInterval expected = freeSpaceOf(free);
+		assertEquals(expected, allocator.getFreeSpace());
+		assertEquals(expected.getIntervals().size(), allocator.getFreeFragmentCount());
+		long largest = 0;
+		for (Interval interval : expected.getIntervals()) {
+			largest = Math.max(largest, interval.getSuperiorEndPoint() - interval.getInferiorEndPoint() + 1);
+		}
+		assertEquals(largest, allocator.getLargestFreeLength());
+	}
+}